@@ -1,4 +1,4 @@
-import React, { useState } from 'react';
+import React, { useState, useEffect } from 'react';
 import { Form, Button, Alert, Spinner } from 'react-bootstrap';
 import { Link } from 'react-router-dom';
 import urlService from '../services/urlService';
@@ -11,8 +11,32 @@ const UrlForm = ({ onSuccess }) => {
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState('');
   const [result, setResult] = useState(null);
+  const [aliasAvailable, setAliasAvailable] = useState(null);
   const { isAuthenticated } = useAuth();
 
+  // Check the alias once the user stops typing
+  useEffect(() => {
+    setAliasAvailable(null);
+    if (!alias) {
+      return;
+    }
+    let cancelled = false;
+    const timer = setTimeout(async () => {
+      try {
+        const available = await urlService.checkAliasAvailable(alias);
+        if (!cancelled) {
+          setAliasAvailable(available);
+        }
+      } catch (error) {
+        // Leave it to the server to reject a taken alias on submit
+      }
+    }, 300);
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [alias]);
+
   const handleSubmit = async (e) => {
     e.preventDefault();
     
@@ -76,7 +100,12 @@ const UrlForm = ({ onSuccess }) => {
             placeholder="my-custom-url"
             value={alias}
             onChange={(e) => setAlias(e.target.value)}
+            isValid={aliasAvailable === true}
+            isInvalid={aliasAvailable === false}
           />
+          <Form.Control.Feedback type="invalid">
+            This alias is already taken or not allowed.
+          </Form.Control.Feedback>
           <Form.Text className="text-muted">
             Leave blank to auto-generate. If specified, must be unique.
           </Form.Text>
@@ -11,6 +11,9 @@ const UrlListPage = () => {
   const [error, setError] = useState('');
   const [urls, setUrls] = useState([]);
   const [expandedTags, setExpandedTags] = useState({});
+  const [nextPageToken, setNextPageToken] = useState(null);
+  const [listedTag, setListedTag] = useState('');
+  const [loadingMore, setLoadingMore] = useState(false);
   
   // Load all URLs when the component mounts
   useEffect(() => {
@@ -29,10 +32,12 @@ const UrlListPage = () => {
     setError('');
     
     try {
-      const data = await urlService.getUrlsByTag(tagValue);
+      const { data, nextPageToken: token } = await urlService.getUrlsByTag(tagValue);
       
       if (Array.isArray(data)) {
         setUrls(data);
+        setNextPageToken(token);
+        setListedTag(tagValue);
         
         // Initialize expanded state for all tags
         const tagsState = {};
@@ -48,6 +53,7 @@ const UrlListPage = () => {
       } else {
         // If response is a message rather than an array
         setUrls([]);
+        setNextPageToken(null);
         if (data.message) {
           setError(data.message);
         }
@@ -56,11 +62,40 @@ const UrlListPage = () => {
       console.error('Error fetching URLs:', error);
       setError('Failed to retrieve URL list. Please try again later.');
       setUrls([]);
+      setNextPageToken(null);
     } finally {
       setLoading(false);
     }
   };
   
+  // Append the next page of the current listing
+  const loadMore = async () => {
+    setLoadingMore(true);
+    
+    try {
+      const { data, nextPageToken: token } = await urlService.getUrlsByTag(listedTag, nextPageToken);
+      if (Array.isArray(data)) {
+        setUrls(prevUrls => [...prevUrls, ...data]);
+        setExpandedTags(prevState => {
+          const tagsState = { ...prevState };
+          data.forEach(url => {
+            const tagName = url.tag || 'default';
+            if (tagsState[tagName] === undefined) {
+              tagsState[tagName] = true;
+            }
+          });
+          return tagsState;
+        });
+      }
+      setNextPageToken(token);
+    } catch (error) {
+      console.error('Error fetching more URLs:', error);
+      setError('Failed to load more URLs. Please try again later.');
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+  
   // Handle URL deletion
   const handleUrlDelete = (deletedId) => {
     setUrls(urls.filter(url => url.id !== deletedId));
@@ -192,6 +227,13 @@ const UrlListPage = () => {
                       </div>
                     </Card>
                   ))}
+                  {nextPageToken && (
+                    <div className="text-center my-3">
+                      <Button variant="outline-primary" onClick={loadMore} disabled={loadingMore}>
+                        {loadingMore ? <Spinner animation="border" size="sm" /> : 'Load more'}
+                      </Button>
+                    </div>
+                  )}
                 </div>
               ) : (
                 !error && <Alert variant="light" className="no-results">No URLs found. Try clearing the search to view all your URLs.</Alert>
@@ -47,6 +47,17 @@ const urlService = {
     }
   },
   
+  // Check whether a custom alias is still free
+  checkAliasAvailable: async (alias) => {
+    try {
+      const response = await apiClient.get(`/alias/${encodeURIComponent(alias)}/available`);
+      return response.data.available;
+    } catch (error) {
+      console.error('Error checking alias:', error);
+      throw error;
+    }
+  },
+  
   // Bulk create short URLs
   bulkShortenUrls: async (urls) => {
     try {
@@ -58,13 +69,20 @@ const urlService = {
     }
   },
   
-  // Get URLs by tag
-  getUrlsByTag: async (tag) => {
+  // Get one page of URLs by tag; nextPageToken is null on the last page
+  getUrlsByTag: async (tag, pageToken = null) => {
     try {
       // Ensure tag is properly encoded
       const encodedTag = encodeURIComponent(tag);
-      const response = await apiClient.get(`/urls?tag=${encodedTag}`);
-      return response.data;
+      let url = `/urls?tag=${encodedTag}`;
+      if (pageToken) {
+        url += `&pageToken=${encodeURIComponent(pageToken)}`;
+      }
+      const response = await apiClient.get(url);
+      return {
+        data: response.data,
+        nextPageToken: response.headers['x-next-page-token'] || null
+      };
     } catch (error) {
       console.error('Error getting URLs by tag:', error);
       throw error;
@@ -1,5 +1,7 @@
 package com.example.urlshortenerbackend.config;
 
+import com.example.urlshortenerbackend.service.ClickCounterService;
+import com.example.urlshortenerbackend.service.ClickEventPipeline;
 import com.example.urlshortenerbackend.service.LLMService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -13,8 +15,24 @@ public class ApplicationShutdownConfig {
     @Autowired
     private LLMService llmService;
 
+    @Autowired
+    private ClickEventPipeline clickEventPipeline;
+
+    @Autowired
+    private ClickCounterService clickCounterService;
+
     @PreDestroy
     public void onShutdown() {
+        // Drain queued click events before the Bigtable client goes away
+        if (clickEventPipeline != null) {
+            clickEventPipeline.shutdown();
+        }
+
+        // Write coalesced click counts that have not been flushed yet
+        if (clickCounterService != null) {
+            clickCounterService.shutdown();
+        }
+
         // Shutdown the LLM service to release resources
         if (llmService != null) {
             llmService.shutdown();
@@ -2,11 +2,14 @@ package com.example.urlshortenerbackend.config;
 
 import com.google.api.gax.core.FixedCredentialsProvider;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.bigtable.admin.v2.BigtableTableAdminClient;
+import com.google.cloud.bigtable.admin.v2.BigtableTableAdminSettings;
 import com.google.cloud.bigtable.data.v2.BigtableDataClient;
 import com.google.cloud.bigtable.data.v2.BigtableDataSettings;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 
@@ -24,19 +27,34 @@ public class BigtableConfig {
 
     @Bean
     public BigtableDataClient bigtableDataClient() throws IOException {
-        // use ClassPathResource to load recourse file
-        Resource resource = new ClassPathResource("team2-service-account-key.json");
-
-        GoogleCredentials credentials = GoogleCredentials.fromStream(
-                resource.getInputStream()
-        );
-
         BigtableDataSettings settings = BigtableDataSettings.newBuilder()
                 .setProjectId(projectId)
                 .setInstanceId(instanceId)
-                .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
+                .setCredentialsProvider(FixedCredentialsProvider.create(credentials()))
                 .build();
 
         return BigtableDataClient.create(settings);
     }
+
+    // Only maintenance commands change the table schema; created on first use
+    @Bean
+    @Lazy
+    public BigtableTableAdminClient bigtableTableAdminClient() throws IOException {
+        BigtableTableAdminSettings settings = BigtableTableAdminSettings.newBuilder()
+                .setProjectId(projectId)
+                .setInstanceId(instanceId)
+                .setCredentialsProvider(FixedCredentialsProvider.create(credentials()))
+                .build();
+
+        return BigtableTableAdminClient.create(settings);
+    }
+
+    private static GoogleCredentials credentials() throws IOException {
+        // use ClassPathResource to load recourse file
+        Resource resource = new ClassPathResource("team2-service-account-key.json");
+
+        return GoogleCredentials.fromStream(
+                resource.getInputStream()
+        );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.example.urlshortenerbackend.config;
+
+import com.example.urlshortenerbackend.repository.BigtableRepository;
+import com.google.cloud.bigtable.admin.v2.BigtableTableAdminClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-off maintenance commands. When the application is started with one of the
+ * options below it runs the command against Bigtable and exits instead of
+ * serving requests:
+ *
+ * <pre>
+ * ./mvnw spring-boot:run -Dspring-boot.run.arguments=--backfill-indexes
+ * </pre>
+ *
+ * --backfill-indexes  writes secondary index rows for links created before the indexes existed
+ * --backfill-rollups  rebuilds hourly and daily click rollups from the raw click events
+ * --apply-gc-policies keeps only the latest cell version in every column family
+ */
+@Component
+public class MaintenanceCommandRunner implements ApplicationRunner {
+
+    private static final String BACKFILL_INDEXES = "backfill-indexes";
+    private static final String BACKFILL_ROLLUPS = "backfill-rollups";
+    private static final String APPLY_GC_POLICIES = "apply-gc-policies";
+
+    private final BigtableRepository bigtableRepository;
+    private final ObjectProvider<BigtableTableAdminClient> adminClient;
+    private final ConfigurableApplicationContext context;
+
+    public MaintenanceCommandRunner(BigtableRepository bigtableRepository,
+                                    ObjectProvider<BigtableTableAdminClient> adminClient,
+                                    ConfigurableApplicationContext context) {
+        this.bigtableRepository = bigtableRepository;
+        this.adminClient = adminClient;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption(BACKFILL_INDEXES) && !args.containsOption(BACKFILL_ROLLUPS)
+                && !args.containsOption(APPLY_GC_POLICIES)) {
+            return;
+        }
+
+        int exitCode = 0;
+        if (args.containsOption(BACKFILL_INDEXES)) {
+            try {
+                System.out.println("Backfilling owner and tag indexes...");
+                long written = bigtableRepository.backfillIndexes();
+                System.out.println("Index backfill complete: " + written + " rows written");
+            } catch (Exception e) {
+                System.err.println("Index backfill failed: " + e.getMessage());
+                exitCode = 1;
+            }
+        }
+        if (args.containsOption(BACKFILL_ROLLUPS)) {
+            try {
+                System.out.println("Rebuilding click rollups...");
+                long written = bigtableRepository.backfillClickRollups();
+                System.out.println("Rollup backfill complete: " + written + " rows written");
+            } catch (Exception e) {
+                System.err.println("Rollup backfill failed: " + e.getMessage());
+                exitCode = 1;
+            }
+        }
+        if (args.containsOption(APPLY_GC_POLICIES)) {
+            try {
+                System.out.println("Applying max-versions GC policies...");
+                List<String> families = bigtableRepository.applyGcPolicies(adminClient.getObject());
+                System.out.println("GC policies applied to column families " + families);
+            } catch (Exception e) {
+                System.err.println("Applying GC policies failed: " + e.getMessage());
+                exitCode = 1;
+            }
+        }
+
+        int status = exitCode;
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+}
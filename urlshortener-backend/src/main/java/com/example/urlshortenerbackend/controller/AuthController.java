@@ -1,25 +1,28 @@
 package com.example.urlshortenerbackend.controller;
 
 import com.example.urlshortenerbackend.model.UserEntity;
-import com.example.urlshortenerbackend.model.UrlEntity;
+import com.example.urlshortenerbackend.model.UrlPage;
 import com.example.urlshortenerbackend.service.UserService;
 import com.example.urlshortenerbackend.service.UrlService;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/user")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "X-Next-Page-Token")
 public class AuthController {
 
     @Autowired
@@ -28,6 +31,16 @@ public class AuthController {
     @Autowired
     private UrlService urlService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    @Value("${app.listing.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${app.listing.max-page-size:1000}")
+    private int maxPageSize;
+
     @GetMapping("/profile")
     public ResponseEntity<?> getUserProfile(Authentication authentication) {
         if (authentication == null) {
@@ -61,21 +74,30 @@ public class AuthController {
         }
     }
 
+    // One page of links; see UrlController#getUrlsByTag for the paging contract
     @GetMapping("/urls")
-    public ResponseEntity<?> getUserUrls(Authentication authentication) {
+    public ResponseEntity<?> getUserUrls(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken,
+            Authentication authentication) {
         if (authentication == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
         }
 
         String ownerId = getOwnerId(authentication);
-        List<UrlEntity> urls = urlService.getUrlsByOwnerId(ownerId);
-
-        return ResponseEntity.ok(urls);
+        int pageSize = UrlPage.pageSize(limit, defaultPageSize, maxPageSize);
+        try {
+            return urlService.getUrlsByOwnerId(ownerId, pageToken, pageSize).toResponse();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid page token"));
+        }
     }
 
     @GetMapping("/urls/tag/{tag}")
     public ResponseEntity<?> getUserUrlsByTag(
             @PathVariable String tag,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken,
             Authentication authentication) {
 
         if (authentication == null) {
@@ -83,9 +105,33 @@ public class AuthController {
         }
 
         String ownerId = getOwnerId(authentication);
-        List<UrlEntity> urls = urlService.getUrlsByTagAndOwnerId(tag, ownerId);
+        int pageSize = UrlPage.pageSize(limit, defaultPageSize, maxPageSize);
+        try {
+            return urlService.getUrlsByTagAndOwnerId(tag, ownerId, pageToken, pageSize).toResponse();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid page token"));
+        }
+    }
 
-        return ResponseEntity.ok(urls);
+    /**
+     * Exports all of the user's links, or those with a tag, as NDJSON. Links are
+     * written as they are read from Bigtable, so memory use does not depend on how
+     * many there are; a client that disconnects stops the read.
+     */
+    @GetMapping("/urls/export")
+    public void exportUserUrls(
+            @RequestParam(required = false) String tag,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
+        if (authentication == null) {
+            response.sendError(401, "Unauthorized");
+            return;
+        }
+
+        String ownerId = getOwnerId(authentication);
+        UrlNdjsonWriter writer = UrlNdjsonWriter.start(objectMapper, response);
+        urlService.streamUrlsByOwnerId(ownerId, (tag == null || tag.trim().isEmpty()) ? null : tag, writer);
+        writer.finish();
     }
 
     // Helper methods
@@ -0,0 +1,125 @@
+package com.example.urlshortenerbackend.controller;
+
+import com.example.urlshortenerbackend.model.ImportJob;
+import com.example.urlshortenerbackend.service.ImportJobService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/imports")
+@CrossOrigin(origins = "*")
+public class ImportJobController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ImportJobService importJobService;
+
+    @Value("${app.base-url:http://localhost:8080}")
+    private String baseUrl;
+
+    @Value("${app.import.max-upload-bytes:104857600}")
+    private long maxUploadBytes;
+
+    public ImportJobController(ImportJobService importJobService) {
+        this.importJobService = importJobService;
+    }
+
+    /**
+     * Starts an import from an NDJSON (one {"url", "tag", "isPrivate"} object per line)
+     * or CSV (url,tag,isPrivate) request body. Returns 202 with the job ID, 429 when
+     * too many imports are queued, or 413 when the body is over the upload limit.
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> startImport(
+            @RequestParam(required = false) String format,
+            HttpServletRequest request,
+            Authentication authentication) {
+        String ownerId = authentication != null ? getOwnerId(authentication) : null;
+
+        ImportJob.Format importFormat = ImportJob.Format.NDJSON;
+        String contentType = request.getContentType();
+        if ("csv".equalsIgnoreCase(format) || (format == null && contentType != null && contentType.startsWith("text/csv"))) {
+            importFormat = ImportJob.Format.CSV;
+        }
+
+        if (request.getContentLengthLong() > maxUploadBytes) {
+            return ResponseEntity.status(413).body(Map.of("error", "Upload exceeds the limit of " + maxUploadBytes + " bytes"));
+        }
+
+        try {
+            ImportJob job = importJobService.submit(request.getInputStream(), importFormat, ownerId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            response.put("statusUrl", baseUrl + "/api/imports/" + job.getId());
+            response.put("resultsUrl", baseUrl + "/api/imports/" + job.getId() + "/results");
+            return ResponseEntity.accepted().body(response);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(429).body(Map.of("error", e.getMessage()));
+        } catch (ImportJobService.UploadTooLargeException e) {
+            return ResponseEntity.status(413).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to read upload: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getImport(@PathVariable String jobId, Authentication authentication) {
+        Optional<ImportJob> job = findJob(jobId, authentication);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.get());
+    }
+
+    /**
+     * Streams the results of a finished import, one JSON object per input line.
+     */
+    @GetMapping("/{jobId}/results")
+    public ResponseEntity<?> getImportResults(@PathVariable String jobId, Authentication authentication) {
+        Optional<ImportJob> jobOpt = findJob(jobId, authentication);
+        if (jobOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        ImportJob job = jobOpt.get();
+        if (!job.isFinished()) {
+            return ResponseEntity.status(409).body(Map.of("error", "Import is still " + job.getStatus(),
+                    "processed", job.getProcessed()));
+        }
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(new FileSystemResource(job.getResultsFile()));
+    }
+
+    // Jobs of a signed-in user are only visible to that user
+    private Optional<ImportJob> findJob(String jobId, Authentication authentication) {
+        String requesterId = authentication != null ? getOwnerId(authentication) : null;
+        return importJobService.getJob(jobId)
+                .filter(job -> job.getOwnerId() == null || job.getOwnerId().equals(requesterId));
+    }
+
+    // if authenticated, return the ownerId
+    private String getOwnerId(Authentication authentication) {
+        if (authentication instanceof OAuth2AuthenticationToken) {
+            OAuth2User oauth2User = (OAuth2User) authentication.getPrincipal();
+            String provider = ((OAuth2AuthenticationToken) authentication).getAuthorizedClientRegistrationId();
+            String providerId = oauth2User.getAttribute("sub");
+            return provider + "#" + providerId;
+        }
+        return null;
+    }
+}
@@ -1,9 +1,18 @@
 package com.example.urlshortenerbackend.controller;
 
+import com.example.urlshortenerbackend.model.BulkShortenResult;
+import com.example.urlshortenerbackend.model.DeletionTask;
+import com.example.urlshortenerbackend.model.RedirectResult;
 import com.example.urlshortenerbackend.model.UrlEntity;
+import com.example.urlshortenerbackend.model.UrlPage;
+import com.example.urlshortenerbackend.service.ClickAnalyticsService;
+import com.example.urlshortenerbackend.service.LinkDeletionService;
+import com.example.urlshortenerbackend.service.TrendingService;
 import com.example.urlshortenerbackend.service.UrlService;
 import com.example.urlshortenerbackend.service.UrlSummaryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
@@ -13,23 +22,47 @@ import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.MediaType;
 
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.ZoneId;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "X-Next-Page-Token")
 public class UrlController {
     @Autowired
     private UrlSummaryService urlSummaryService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LinkDeletionService linkDeletionService;
+
+    @Autowired
+    private ClickAnalyticsService clickAnalyticsService;
+
+    @Autowired
+    private TrendingService trendingService;
+
     private final UrlService urlService;
 
+
     @Value("${app.base-url:http://localhost:8080}")
     private String baseUrl;
 
+    @Value("${app.listing.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${app.listing.max-page-size:1000}")
+    private int maxPageSize;
+
     public UrlController(UrlService urlService) {
         this.urlService = urlService;
     }
@@ -86,51 +119,48 @@ public class UrlController {
                 ownerId = getOwnerId(authentication);
             }
 
-            Map<String, String> shortenedUrls = urlService.bulkShorten(urls, ownerId);
-            return ResponseEntity.ok(Map.of("shortened_urls", shortenedUrls));
+            List<BulkShortenResult> results = urlService.bulkShorten(urls, ownerId);
+
+            // Legacy url -> shortId map, kept alongside the per-item results in input order
+            Map<String, String> shortenedUrls = new LinkedHashMap<>();
+            for (BulkShortenResult result : results) {
+                shortenedUrls.put(result.getUrl(), result.isSuccess() ? result.getShortId() : "Error: " + result.getError());
+            }
+            return ResponseEntity.ok(Map.of("shortened_urls", shortenedUrls, "results", results));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to create short URL(s): " + e.getMessage()));
         }
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<?> getLongUrl(@PathVariable String id, Authentication authentication, HttpServletRequest request) {
-        Optional<UrlEntity> urlEntityOpt = urlService.getUrlById(id);
-
-        // Check if URL exists
-        if (urlEntityOpt.isEmpty()) {
-            Map<String, String> error = new HashMap<>();
-            error.put("error", "URL not found");
-            return ResponseEntity.notFound().build();
-        }
+    @GetMapping("/alias/{alias}/available")
+    public ResponseEntity<Map<String, Object>> checkAlias(@PathVariable String alias) {
+        boolean valid = urlService.isValidAlias(alias);
+        boolean available = valid && urlService.isAliasAvailable(alias);
+        return ResponseEntity.ok(Map.of("alias", alias, "valid", valid, "available", available));
+    }
 
-        UrlEntity urlEntity = urlEntityOpt.get();
+    // Async: the servlet thread is released while Bigtable answers a cache miss
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<?>> getLongUrl(@PathVariable String id, Authentication authentication, HttpServletRequest request) {
+        String requesterId = authentication != null ? getOwnerId(authentication) : null;
+        return urlService.resolveRedirect(id, authentication != null, requesterId, request)
+                .thenApply(this::toRedirectResponse);
+    }
 
-        // Check if URL is private and validate ownership
-        if (urlEntity.isPrivate()) {
-            if (authentication == null) {
+    private ResponseEntity<?> toRedirectResponse(RedirectResult result) {
+        switch (result.getStatus()) {
+            case FOUND:
+                // use HTTP 302 to redirect
+                return ResponseEntity.status(302)
+                        .header("Location", result.getLocation())
+                        .build();
+            case UNAUTHORIZED:
                 return ResponseEntity.status(401).body(Map.of("error", "Authentication required for private URLs"));
-            }
-
-            String ownerId = getOwnerId(authentication);
-            if (!ownerId.equals(urlEntity.getOwnerId())) {
+            case FORBIDDEN:
                 return ResponseEntity.status(403).body(Map.of("error", "You don't have permission to access this URL"));
-            }
-        }
-
-        Optional<String> longUrl = urlService.getLongUrl(id);
-        if (longUrl.isPresent()) {
-            // Log the click event
-            urlService.logClickEvent(id, request);
-
-            // use HTTP 302 to redirect
-            return ResponseEntity.status(302)
-                    .header("Location", longUrl.get())
-                    .build();
-        } else {
-            Map<String, String> error = new HashMap<>();
-            error.put("error", "URL not found");
-            return ResponseEntity.notFound().build();
+            case NOT_FOUND:
+            default:
+                return ResponseEntity.notFound().build();
         }
     }
 
@@ -173,23 +203,26 @@ public class UrlController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Map<String, String>> deleteUrl(@PathVariable String id, Authentication authentication) {
+    public ResponseEntity<Map<String, Object>> deleteUrl(@PathVariable String id, Authentication authentication) {
         try {
             // If user is not authenticated, deny access
             if (authentication == null) {
-                Map<String, String> error = new HashMap<>();
+                Map<String, Object> error = new HashMap<>();
                 error.put("error", "Authentication required");
                 return ResponseEntity.status(401).body(error);
             }
 
             String ownerId = getOwnerId(authentication);
-            urlService.deleteShortUrl(id, ownerId); // 传递两个参数
+            DeletionTask task = urlService.deleteShortUrl(id, ownerId); // 传递两个参数
 
-            Map<String, String> response = new HashMap<>();
+            // The link is already gone for readers; its clicks are removed in the background
+            Map<String, Object> response = new HashMap<>();
             response.put("message", "URL successfully deleted");
-            return ResponseEntity.ok(response);
+            response.put("taskId", task.getId());
+            response.put("statusUrl", baseUrl + "/api/deletions/" + task.getId());
+            return ResponseEntity.accepted().body(response);
         } catch (SecurityException e) {
-            Map<String, String> error = new HashMap<>();
+            Map<String, Object> error = new HashMap<>();
             error.put("error", e.getMessage());
             return ResponseEntity.status(403).body(error);
         } catch (IllegalArgumentException e) {
@@ -203,38 +236,107 @@ public class UrlController {
         }
     }
 
+    @PutMapping("/{id}/tag")
+    public ResponseEntity<?> updateTag(
+            @PathVariable String id,
+            @RequestParam(required = false) String tag,
+            Authentication authentication) {
+        if (authentication == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Authentication required"));
+        }
+
+        try {
+            UrlEntity urlEntity = urlService.updateTag(id, tag, getOwnerId(authentication));
+            return ResponseEntity.ok(urlEntity);
+        } catch (SecurityException e) {
+            return ResponseEntity.status(403).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to update tag: " + e.getMessage()));
+        }
+    }
+
+    // Progress of a link deletion started by DELETE /api/{id}, visible to the link's owner
+    @GetMapping("/deletions/{taskId}")
+    public ResponseEntity<?> getDeletion(@PathVariable String taskId, Authentication authentication) {
+        String requesterId = authentication != null ? getOwnerId(authentication) : null;
+        Optional<DeletionTask> task = linkDeletionService.getTask(taskId)
+                .filter(t -> t.getOwnerId() == null || t.getOwnerId().equals(requesterId));
+        if (task.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(task.get());
+    }
+
+    /**
+     * Lists links one page at a time. The body is a JSON array of at most limit links;
+     * when more follow, the X-Next-Page-Token header carries the token for the next page.
+     */
     @GetMapping("/urls")
     public ResponseEntity<?> getUrlsByTag(
             @RequestParam(required = false) String tag,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken,
             Authentication authentication) {
 
-        // If user is authenticated
-        if (authentication != null) {
-            String ownerId = getOwnerId(authentication);
+        int pageSize = UrlPage.pageSize(limit, defaultPageSize, maxPageSize);
+        try {
+            // If user is authenticated
+            if (authentication != null) {
+                String ownerId = getOwnerId(authentication);
 
-            // If tag is null, empty or blank, return all URLs for the authenticated user
-            if (tag == null || tag.trim().isEmpty()) {
-                List<UrlEntity> allUserUrls = urlService.getUrlsByOwnerId(ownerId);
-                return ResponseEntity.ok(allUserUrls);
+                // If tag is null, empty or blank, return all URLs for the authenticated user
+                if (tag == null || tag.trim().isEmpty()) {
+                    return urlService.getUrlsByOwnerId(ownerId, pageToken, pageSize).toResponse();
+                } else {
+                    // Search by tag (existing functionality)
+                    return urlService.getUrlsByTagAndOwnerId(tag, ownerId, pageToken, pageSize).toResponse();
+                }
             } else {
+                // For unauthenticated users, only show public URLs
+                // If no tag provided, return an informative message
+                if (tag == null || tag.trim().isEmpty()) {
+                    return ResponseEntity.ok(Map.of("message", "Please provide a tag to search or login to view all your URLs"));
+                }
+
                 // Search by tag (existing functionality)
-                List<UrlEntity> urls = urlService.getUrlsByTagAndOwnerId(tag, ownerId);
-                return ResponseEntity.ok(urls);
-            }
-        } else {
-            // For unauthenticated users, only show public URLs
-            // If no tag provided, return an informative message
-            if (tag == null || tag.trim().isEmpty()) {
-                return ResponseEntity.ok(Map.of("message", "Please provide a tag to search or login to view all your URLs"));
+                UrlPage page = urlService.getUrlsByTag(tag, pageToken, pageSize);
+                if (page.getItems().isEmpty() && pageToken == null) {
+                    return ResponseEntity.ok(Map.of("message", "No URLs found for this tag"));
+                }
+                return page.toResponse();
             }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid page token"));
+        }
+    }
 
-            // Search by tag (existing functionality)
-            List<UrlEntity> urls = urlService.getUrlsByTag(tag);
-            if (urls.isEmpty()) {
-                return ResponseEntity.ok(Map.of("message", "No URLs found for this tag"));
-            }
-            return ResponseEntity.ok(urls);
+    /**
+     * Complete result set of /urls as NDJSON, streamed as it is read: the caller's own
+     * links when signed in, otherwise the public links with the given tag.
+     *
+     * Written on the request thread rather than as an async StreamingResponseBody,
+     * so that long exports are not cut off by the async request timeout.
+     */
+    @GetMapping("/urls/export")
+    public void exportUrls(
+            @RequestParam(required = false) String tag,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
+        boolean hasTag = tag != null && !tag.trim().isEmpty();
+        if (authentication == null && !hasTag) {
+            response.sendError(400, "Please provide a tag to export or login to export all your URLs");
+            return;
         }
+
+        UrlNdjsonWriter writer = UrlNdjsonWriter.start(objectMapper, response);
+        if (authentication != null) {
+            urlService.streamUrlsByOwnerId(getOwnerId(authentication), hasTag ? tag : null, writer);
+        } else {
+            urlService.streamUrlsByTag(tag, writer);
+        }
+        writer.finish();
     }
 
     // if authenticated, return the ownerId
@@ -248,16 +350,60 @@ public class UrlController {
         return null;
     }
 
+    /**
+     * Click analytics of a link. Days, weeks and months are counted in the given
+     * timezone, an IANA ID such as Europe/Berlin; US Central time by default.
+     */
     @GetMapping("/{shortId}/analytics")
     public ResponseEntity<Map<String, Object>> getAnalytics(
             @PathVariable String shortId,
             @RequestParam(required = false) String date,
-            @RequestParam(required = false) String timeRange) {
+            @RequestParam(required = false) String timeRange,
+            @RequestParam(required = false) String timezone) {
 
-        Map<String, Object> analyticsData = urlService.getAnalytics(shortId, date, timeRange);
+        if (timezone == null || timezone.isBlank()) {
+            return ResponseEntity.ok(clickAnalyticsService.getAnalytics(shortId, date, timeRange));
+        }
+        ZoneId zone;
+        try {
+            zone = ZoneId.of(timezone);
+        } catch (DateTimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid timezone: " + timezone));
+        }
+        Map<String, Object> analyticsData = clickAnalyticsService.getAnalytics(shortId, date, timeRange, zone);
         return ResponseEntity.ok(analyticsData);
     }
 
+    /**
+     * Most-clicked links of the last minutes, up to the last hour by default
+     * settings. Public links for everyone; with mine=true, the caller's own links,
+     * private ones included.
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<?> getTrending(
+            @RequestParam(required = false, defaultValue = "60") int minutes,
+            @RequestParam(required = false, defaultValue = "10") int limit,
+            @RequestParam(required = false, defaultValue = "false") boolean mine,
+            Authentication authentication) {
+
+        if (minutes < 1 || minutes > trendingService.maxWindowMinutes()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "minutes must be between 1 and " + trendingService.maxWindowMinutes()));
+        }
+        String ownerId = null;
+        if (mine) {
+            if (authentication == null) {
+                return ResponseEntity.status(401).body(Map.of("error", "Authentication required"));
+            }
+            ownerId = getOwnerId(authentication);
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, 100));
+        return ResponseEntity.ok(Map.of(
+                "minutes", minutes,
+                "links", trendingService.getTrending(ownerId, minutes, pageSize)));
+    }
+
     @GetMapping("/{id}/summary")
     public ResponseEntity<?> getUrlSummary(@PathVariable String id, Authentication authentication) {
         Optional<UrlEntity> urlEntityOpt = urlService.getUrlById(id);
@@ -0,0 +1,63 @@
+package com.example.urlshortenerbackend.controller;
+
+import com.example.urlshortenerbackend.model.UrlEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Predicate;
+
+/**
+ * Writes links to a response as NDJSON, one object per line, as they are read.
+ *
+ * Used as the sink of a repository stream: it returns false as soon as a write
+ * fails, which is how a client disconnect shows up, so the Bigtable stream is
+ * cancelled instead of being read to the end for nobody.
+ */
+final class UrlNdjsonWriter implements Predicate<UrlEntity> {
+
+    static final String CONTENT_TYPE = "application/x-ndjson";
+
+    // The first line goes out at once; after that, flush in chunks rather than per line
+    private static final int FLUSH_EVERY = 100;
+
+    private final ObjectMapper objectMapper;
+    private final OutputStream out;
+    private long written;
+    private IOException failure;
+
+    private UrlNdjsonWriter(ObjectMapper objectMapper, OutputStream out) {
+        this.objectMapper = objectMapper;
+        this.out = out;
+    }
+
+    static UrlNdjsonWriter start(ObjectMapper objectMapper, HttpServletResponse response) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        return new UrlNdjsonWriter(objectMapper, response.getOutputStream());
+    }
+
+    @Override
+    public boolean test(UrlEntity link) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(link));
+            out.write('\n');
+            if (++written == 1 || written % FLUSH_EVERY == 0) {
+                out.flush();
+            }
+            return true;
+        } catch (IOException e) {
+            failure = e;
+            return false;
+        }
+    }
+
+    // Flushes what is left, or reports why the stream was cut short
+    void finish() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.urlshortenerbackend.model;
+
+/**
+ * Outcome for one item of a bulk shorten request: the new short ID, or why
+ * the item was not created.
+ */
+public class BulkShortenResult {
+
+    private final String url;
+    private final String shortId;
+    private final String error;
+
+    private BulkShortenResult(String url, String shortId, String error) {
+        this.url = url;
+        this.shortId = shortId;
+        this.error = error;
+    }
+
+    public static BulkShortenResult success(String url, String shortId) {
+        return new BulkShortenResult(url, shortId, null);
+    }
+
+    public static BulkShortenResult failure(String url, String error) {
+        return new BulkShortenResult(url, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getShortId() {
+        return shortId;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.urlshortenerbackend.model;
+
+/**
+ * Immutable click captured on the redirect path.
+ *
+ * The request thread fills in only what it can read from the request; the
+ * country, device type, browser (and its major version) and OS are added by the
+ * ingestion workers via {@link #withEnrichment(String, String, String, int, String)}.
+ */
+public final class ClickEvent {
+
+    private final String shortId;
+    private final long timestamp;       // epoch millis
+    private final String ip;
+    private final String userAgent;
+    private final String referer;
+
+    // enrichment, null until a worker has processed the event
+    private final String country;
+    private final String deviceType;
+    private final String browser;
+    private final int browserMajorVersion;   // -1 when unknown
+    private final String os;
+
+    public ClickEvent(String shortId, long timestamp, String ip, String userAgent, String referer) {
+        this(shortId, timestamp, ip, userAgent, referer, null, null, null, -1, null);
+    }
+
+    private ClickEvent(String shortId, long timestamp, String ip, String userAgent, String referer,
+                       String country, String deviceType, String browser, int browserMajorVersion, String os) {
+        this.shortId = shortId;
+        this.timestamp = timestamp;
+        this.ip = ip;
+        this.userAgent = userAgent;
+        this.referer = referer;
+        this.country = country;
+        this.deviceType = deviceType;
+        this.browser = browser;
+        this.browserMajorVersion = browserMajorVersion;
+        this.os = os;
+    }
+
+    public ClickEvent withEnrichment(String country, String deviceType, String browser, int browserMajorVersion,
+                                     String os) {
+        return new ClickEvent(shortId, timestamp, ip, userAgent, referer, country, deviceType, browser,
+                browserMajorVersion, os);
+    }
+
+    // Enrichment without a browser version
+    public ClickEvent withEnrichment(String country, String deviceType, String browser, String os) {
+        return withEnrichment(country, deviceType, browser, -1, os);
+    }
+
+    public String getShortId() {
+        return shortId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public String getReferer() {
+        return referer;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getDeviceType() {
+        return deviceType;
+    }
+
+    public String getBrowser() {
+        return browser;
+    }
+
+    public int getBrowserMajorVersion() {
+        return browserMajorVersion;
+    }
+
+    public String getOs() {
+        return os;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.urlshortenerbackend.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Click counts of one link over one UTC hour or day, as maintained at ingest:
+ * the total and the counts by device type, browser and country, keyed by the
+ * values the enrichment produced.
+ */
+public class ClickRollup {
+
+    private final long startMillis;     // start of the hour or day, epoch millis
+    private long total;
+    private final Map<String, Long> devices = new HashMap<>();
+    private final Map<String, Long> browsers = new HashMap<>();
+    private final Map<String, Long> countries = new HashMap<>();
+
+    public ClickRollup(long startMillis) {
+        this.startMillis = startMillis;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public Map<String, Long> getDevices() {
+        return devices;
+    }
+
+    public Map<String, Long> getBrowsers() {
+        return browsers;
+    }
+
+    public Map<String, Long> getCountries() {
+        return countries;
+    }
+
+    public void addTotal(long count) {
+        total += count;
+    }
+
+    public void addDevice(String device, long count) {
+        devices.merge(device, count, Long::sum);
+    }
+
+    public void addBrowser(String browser, long count) {
+        browsers.merge(browser, count, Long::sum);
+    }
+
+    public void addCountry(String country, long count) {
+        countries.merge(country, count, Long::sum);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.urlshortenerbackend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background removal of a deleted link's click events and row. The link is
+ * hidden from the moment the task is created, and removed from purgeAfter on;
+ * progress is updated by the worker and may be read at any time.
+ */
+public class DeletionTask {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String id;
+    private final String shortId;
+    private final String ownerId;
+    private final long createdAt;           // epoch millis
+    private final long purgeAfter;          // epoch millis; the task stays QUEUED until then
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long finishedAt;       // epoch millis, 0 while unfinished
+    private volatile String error;          // last failure, also kept while a retry is pending
+    private volatile int failedAttempts;
+
+    private final AtomicLong deletedClickEvents = new AtomicLong();
+
+    public DeletionTask(String id, String shortId, String ownerId, long createdAt, long purgeAfter) {
+        this.id = id;
+        this.shortId = shortId;
+        this.ownerId = ownerId;
+        this.createdAt = createdAt;
+        this.purgeAfter = purgeAfter;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getShortId() {
+        return shortId;
+    }
+
+    @JsonIgnore
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getPurgeAfter() {
+        return purgeAfter;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public int getFailedAttempts() {
+        return failedAttempts;
+    }
+
+    public long getDeletedClickEvents() {
+        return deletedClickEvents.get();
+    }
+
+    public void markRunning() {
+        status = Status.RUNNING;
+    }
+
+    public void markCompleted(long finishedAt) {
+        this.finishedAt = finishedAt;
+        status = Status.COMPLETED;
+    }
+
+    /**
+     * Records a failed attempt that will be retried; the task is queued again.
+     *
+     * @return The number of failed attempts so far
+     */
+    public int markRetrying(String error) {
+        this.error = error;
+        status = Status.QUEUED;
+        return ++failedAttempts;
+    }
+
+    public void markFailed(String error, long finishedAt) {
+        this.error = error;
+        this.finishedAt = finishedAt;
+        status = Status.FAILED;
+    }
+
+    public void recordDeletedClickEvents(long count) {
+        deletedClickEvents.addAndGet(count);
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+}
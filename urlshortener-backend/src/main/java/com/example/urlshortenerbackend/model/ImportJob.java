@@ -0,0 +1,127 @@
+package com.example.urlshortenerbackend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bulk import running in the background: where its input and results are
+ * spooled, and how far it has got. Progress counters are updated by the worker
+ * and may be read at any time.
+ */
+public class ImportJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private final String id;
+    private final String ownerId;
+    private final Format format;
+    private final Path inputFile;
+    private final Path resultsFile;
+    private final long createdAt;           // epoch millis
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long finishedAt;       // epoch millis, 0 while unfinished
+    private volatile String error;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public ImportJob(String id, String ownerId, Format format, Path inputFile, Path resultsFile, long createdAt) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.format = format;
+        this.inputFile = inputFile;
+        this.resultsFile = resultsFile;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    @JsonIgnore
+    public Path getInputFile() {
+        return inputFile;
+    }
+
+    @JsonIgnore
+    public Path getResultsFile() {
+        return resultsFile;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public void markRunning() {
+        status = Status.RUNNING;
+    }
+
+    public void markCompleted(long finishedAt) {
+        this.finishedAt = finishedAt;
+        status = Status.COMPLETED;
+    }
+
+    public void markFailed(String error, long finishedAt) {
+        this.error = error;
+        this.finishedAt = finishedAt;
+        status = Status.FAILED;
+    }
+
+    public void recordResults(long succeeded, long failed) {
+        this.succeeded.addAndGet(succeeded);
+        this.failed.addAndGet(failed);
+        this.processed.addAndGet(succeeded + failed);
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+}
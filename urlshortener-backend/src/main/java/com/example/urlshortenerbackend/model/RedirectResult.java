@@ -0,0 +1,47 @@
+package com.example.urlshortenerbackend.model;
+
+/**
+ * Outcome of resolving a short ID for a redirect: either a Location to send
+ * the client to, or the reason the redirect was refused.
+ */
+public class RedirectResult {
+
+    public enum Status {
+        FOUND,          // 302 to location
+        NOT_FOUND,      // 404
+        UNAUTHORIZED,   // 401, private link and no authentication
+        FORBIDDEN       // 403, private link owned by someone else
+    }
+
+    private final Status status;
+    private final String location;
+
+    private RedirectResult(Status status, String location) {
+        this.status = status;
+        this.location = location;
+    }
+
+    public static RedirectResult found(String location) {
+        return new RedirectResult(Status.FOUND, location);
+    }
+
+    public static RedirectResult notFound() {
+        return new RedirectResult(Status.NOT_FOUND, null);
+    }
+
+    public static RedirectResult unauthorized() {
+        return new RedirectResult(Status.UNAUTHORIZED, null);
+    }
+
+    public static RedirectResult forbidden() {
+        return new RedirectResult(Status.FORBIDDEN, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+}
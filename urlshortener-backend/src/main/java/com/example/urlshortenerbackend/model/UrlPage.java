@@ -0,0 +1,63 @@
+package com.example.urlshortenerbackend.model;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * One page of a link listing, and the opaque token that resumes the listing
+ * after it. The token is null on the last page.
+ */
+public class UrlPage {
+
+    // The body of a listing stays a plain array; the continuation token travels in this header
+    public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
+    private final List<UrlEntity> items;
+    private final String nextPageToken;
+
+    private UrlPage(List<UrlEntity> items, String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public static UrlPage of(List<UrlEntity> items, String nextPageToken) {
+        return new UrlPage(items, nextPageToken);
+    }
+
+    public static UrlPage last(List<UrlEntity> items) {
+        return new UrlPage(items, null);
+    }
+
+    /**
+     * Page size for a requested limit: the default when none is given, otherwise
+     * the limit kept within 1 and the largest page size.
+     */
+    public static int pageSize(Integer limit, int defaultPageSize, int maxPageSize) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    public List<UrlEntity> getItems() {
+        return items;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextPageToken != null;
+    }
+
+    // The links as the response body, with the token of the next page in a header
+    public ResponseEntity<List<UrlEntity>> toResponse() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (hasNextPage()) {
+            response.header(NEXT_PAGE_TOKEN_HEADER, nextPageToken);
+        }
+        return response.body(items);
+    }
+}
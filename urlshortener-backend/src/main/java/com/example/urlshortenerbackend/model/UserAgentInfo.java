@@ -0,0 +1,62 @@
+package com.example.urlshortenerbackend.model;
+
+/**
+ * Classification of a User-Agent header.
+ *
+ * Device types, browsers and operating systems come from fixed dictionaries;
+ * the array positions are stable codes and may only ever be appended to.
+ */
+public final class UserAgentInfo {
+
+    public static final String[] DEVICE_TYPES = {"Unknown", "Desktop", "Mobile", "Tablet"};
+    public static final String[] BROWSERS = {"Unknown", "Other", "Chrome", "Firefox", "Safari", "Edge", "Internet Explorer"};
+    public static final String[] OPERATING_SYSTEMS = {"Unknown", "Other", "Windows", "macOS", "iOS", "Android", "Linux", "Chrome OS"};
+
+    public static final int DEVICE_UNKNOWN = 0, DEVICE_DESKTOP = 1, DEVICE_MOBILE = 2, DEVICE_TABLET = 3;
+    public static final int BROWSER_UNKNOWN = 0, BROWSER_OTHER = 1, BROWSER_CHROME = 2, BROWSER_FIREFOX = 3,
+            BROWSER_SAFARI = 4, BROWSER_EDGE = 5, BROWSER_IE = 6;
+    public static final int OS_UNKNOWN = 0, OS_OTHER = 1, OS_WINDOWS = 2, OS_MACOS = 3, OS_IOS = 4,
+            OS_ANDROID = 5, OS_LINUX = 6, OS_CHROME_OS = 7;
+
+    public static final UserAgentInfo UNKNOWN = new UserAgentInfo(DEVICE_UNKNOWN, BROWSER_UNKNOWN, -1, OS_UNKNOWN);
+
+    private final int deviceTypeCode;
+    private final int browserCode;
+    private final int browserMajorVersion;   // -1 when not present
+    private final int osCode;
+
+    public UserAgentInfo(int deviceTypeCode, int browserCode, int browserMajorVersion, int osCode) {
+        this.deviceTypeCode = deviceTypeCode;
+        this.browserCode = browserCode;
+        this.browserMajorVersion = browserMajorVersion;
+        this.osCode = osCode;
+    }
+
+    public int getDeviceTypeCode() {
+        return deviceTypeCode;
+    }
+
+    public int getBrowserCode() {
+        return browserCode;
+    }
+
+    public int getOsCode() {
+        return osCode;
+    }
+
+    public String getDeviceType() {
+        return DEVICE_TYPES[deviceTypeCode];
+    }
+
+    public String getBrowser() {
+        return BROWSERS[browserCode];
+    }
+
+    public int getBrowserMajorVersion() {
+        return browserMajorVersion;
+    }
+
+    public String getOs() {
+        return OPERATING_SYSTEMS[osCode];
+    }
+}
@@ -1,24 +1,59 @@
 package com.example.urlshortenerbackend.repository;
 
+import com.example.urlshortenerbackend.model.ClickEvent;
+import com.example.urlshortenerbackend.model.ClickRollup;
 import com.example.urlshortenerbackend.model.UrlEntity;
+import com.example.urlshortenerbackend.model.UrlPage;
 import com.example.urlshortenerbackend.model.UserEntity;
+import com.google.cloud.bigtable.admin.v2.BigtableTableAdminClient;
+import com.google.cloud.bigtable.admin.v2.models.ColumnFamily;
+import com.google.cloud.bigtable.admin.v2.models.GCRules;
+import com.google.cloud.bigtable.admin.v2.models.ModifyColumnFamiliesRequest;
 import com.google.cloud.bigtable.data.v2.BigtableDataClient;
+import com.google.cloud.bigtable.data.v2.models.BulkMutation;
+import com.google.cloud.bigtable.data.v2.models.ConditionalRowMutation;
+import com.google.cloud.bigtable.data.v2.models.MutateRowsException;
+import com.google.cloud.bigtable.data.v2.models.Mutation;
 import com.google.cloud.bigtable.data.v2.models.Query;
+import com.google.cloud.bigtable.data.v2.models.Range.ByteStringRange;
+import com.google.cloud.bigtable.data.v2.models.ReadModifyWriteRow;
 import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.cloud.bigtable.data.v2.models.RowCell;
 import com.google.cloud.bigtable.data.v2.models.RowMutation;
+import com.google.cloud.bigtable.data.v2.models.RowMutationEntry;
 import com.google.cloud.bigtable.data.v2.models.Filters;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.Batcher;
 import com.google.api.gax.rpc.ServerStream;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Repository;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
 
 @Repository
 public class BigtableRepository {
 
     private static final String TABLE_NAME = "team2_url_shortener";
 
+    // Error saveUrls reports for a link whose ID was already in use
+    public static final String ID_TAKEN = "Short ID already in use";
+
     // Column Family: short_urls
     private static final String CF_SHORT_URLS = "short_urls";
     private static final String COL_ORIGINAL_URL = "original_url";
@@ -26,10 +61,12 @@ public class BigtableRepository {
 
     // Column Family: metadata
     private static final String CF_METADATA = "metadata";
-    private static final String COL_CLICK_COUNT = "click_count";
+    private static final String COL_CLICK_COUNT = "click_count";        // legacy string count, no longer updated
+    private static final String COL_CLICK_COUNTER = "click_counter";    // 64-bit big-endian, atomic increments
     private static final String COL_LAST_ACCESS = "last_access";
     private static final String COL_TAG = "tag";
     private static final String COL_IS_PRIVATE = "is_private";
+    private static final String COL_DELETED_AT = "deleted_at";          // tombstone: link hidden, removal in progress
 
     // Column Family: user_data (for user records)
     private static final String CF_USER_DATA = "user_data";
@@ -41,11 +78,143 @@ public class BigtableRepository {
     private static final String COL_ROLE = "role";
     private static final String COL_LAST_LOGIN = "last_login";
 
+    // Short ID allocation: shared sequence counter, leased in blocks
+    private static final String SHORT_ID_SEQUENCE_ROW = "counter#short_id";
+    private static final String COL_SEQUENCE = "sequence";                // 64-bit big-endian, atomic increments
+
+    // Secondary index rows, each pointing at one link:
+    //   owner#<ownerId>#<shortId>          every owned link
+    //   tag#pub#<tag>#<shortId>            public links, by tag
+    //   tag#own#<ownerId>#<tag>#<shortId>  owned links, private ones included, by tag
+    private static final String OWNER_INDEX_PREFIX = "owner#";
+    private static final String PUBLIC_TAG_INDEX_PREFIX = "tag#pub#";
+    private static final String OWNER_TAG_INDEX_PREFIX = "tag#own#";
+    private static final String COL_INDEXED_ID = "indexed_id";
+    // Deletions in progress: deleting#<shortId>, removed once the link and its clicks are gone
+    private static final String DELETION_MARKER_PREFIX = "deleting#";
+    // Journal of created short IDs (see ShortIdFilter): newid#<epoch seconds, 10 digits>#<shortId>,
+    // written with a link's index rows, so recent IDs are read from a small key range
+    private static final String NEW_ID_JOURNAL_PREFIX = "newid#";
+    // Trending-link snapshots (see TrendingService), one row per view and instance: trending#<scope>#<instance>
+    private static final String TRENDING_SNAPSHOT_PREFIX = "trending#";
+    private static final String COL_SNAPSHOT = "snapshot";
+    // Row keys per multi-get when resolving index entries to links
+    private static final int INDEX_LOOKUP_BATCH = 500;
+    // Click events deleted between progress reports
+    private static final long CLICK_DELETE_PROGRESS_EVERY = 1000;
+    // Index rows younger than this may belong to a link that is still being written
+    private static final long INDEX_REPAIR_GRACE_MICROS = 60_000_000L;
+
+    // Column Family: click_events (one row per click). New clicks are one binary record cell (see
+    // ClickRecordCodec); older rows have one string cell per field
+    private static final String CF_CLICK_EVENTS = "click_events";
+    private static final ByteString COL_CLICK_RECORD = ByteString.copyFromUtf8("record");
+    private static final ZoneId CLICK_TIMESTAMP_ZONE = ZoneId.of("America/Chicago");
+    // Legacy click keys sort by CST wall-clock time, which shifts by an hour at DST changes
+    private static final long LEGACY_CLICK_KEY_SLACK_MILLIS = 3_600_000L;
+
+    // Click rollup rows (see ClickRollupKeys), in the metadata family: 64-bit big-endian counters,
+    // atomic increments. total, plus one counter per device type, browser and country seen
+    private static final String COL_ROLLUP_TOTAL = "total";
+    private static final String ROLLUP_DEVICE_PREFIX = "device:";
+    private static final String ROLLUP_BROWSER_PREFIX = "browser:";
+    private static final String ROLLUP_COUNTRY_PREFIX = "country:";
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long DAY_MILLIS = 86_400_000L;
+    // Click cells read by ClickStreamAggregator
+    private static final Filters.Filter CLICK_AGGREGATION_PROJECTION = Filters.FILTERS.chain()
+            .filter(Filters.FILTERS.qualifier().regex("record|timestamp|device_type|browser|country"))
+            .filter(Filters.FILTERS.limit().cellsPerColumn(1));
+
+    // Full User-Agent and referer values of click records, one row per distinct value, keyed by
+    // ClickRecordCodec.valueHash: dict#ua#<hash> and dict#ref#<hash>. Shared by all links, never deleted
+    private static final String USER_AGENT_DICTIONARY_PREFIX = "dict#ua#";
+    private static final String REFERER_DICTIONARY_PREFIX = "dict#ref#";
+    private static final String COL_DICTIONARY_VALUE = "value";
+    private static final int DICTIONARY_CACHE_SIZE = 10_000;
 
     private final BigtableDataClient bigtableClient;
+    private final MeterRegistry meterRegistry;
+
+    // Dictionary rows this process has written; real traffic repeats a few thousand values
+    private final Cache<String, Boolean> storedDictionaryRows = Caffeine.newBuilder()
+            .maximumSize(DICTIONARY_CACHE_SIZE)
+            .build();
 
-    public BigtableRepository(BigtableDataClient bigtableClient) {
+    public BigtableRepository(BigtableDataClient bigtableClient, MeterRegistry meterRegistry) {
         this.bigtableClient = bigtableClient;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // The cells buildLinkTargetFromRow reads, latest version only: enough to redirect or check access
+    private static Filters.Filter linkTargetColumns() {
+        return Filters.FILTERS.chain()
+                .filter(Filters.FILTERS.interleave()
+                        .filter(Filters.FILTERS.chain()
+                                .filter(Filters.FILTERS.family().exactMatch(CF_SHORT_URLS))
+                                .filter(Filters.FILTERS.qualifier().regex(COL_ORIGINAL_URL + "|" + COL_OWNER_ID)))
+                        .filter(Filters.FILTERS.chain()
+                                .filter(Filters.FILTERS.family().exactMatch(CF_METADATA))
+                                .filter(Filters.FILTERS.qualifier().regex(COL_IS_PRIVATE + "|" + COL_DELETED_AT))))
+                .filter(Filters.FILTERS.limit().cellsPerColumn(1));
+    }
+
+    // The cells buildUrlEntityFromRow reads, latest version only; never the summary or keywords
+    private static Filters.Filter linkColumns() {
+        return Filters.FILTERS.chain()
+                .filter(Filters.FILTERS.interleave()
+                        .filter(Filters.FILTERS.chain()
+                                .filter(Filters.FILTERS.family().exactMatch(CF_SHORT_URLS))
+                                .filter(Filters.FILTERS.qualifier().regex(
+                                        COL_ORIGINAL_URL + "|" + COL_OWNER_ID + "|" + COL_TAG)))
+                        .filter(Filters.FILTERS.chain()
+                                .filter(Filters.FILTERS.family().exactMatch(CF_METADATA))
+                                .filter(Filters.FILTERS.qualifier().regex(
+                                        COL_CLICK_COUNT + "|" + COL_CLICK_COUNTER + "|" + COL_LAST_ACCESS + "|" + COL_IS_PRIVATE
+                                                + "|" + COL_DELETED_AT))))
+                .filter(Filters.FILTERS.limit().cellsPerColumn(1));
+    }
+
+    /**
+     * Streams the rows of a scan and reports what it returned: rows and bytes (keys,
+     * qualifiers and values) per query name. Bigtable does not report per request
+     * how much it read to produce them; compare with the table's read metrics.
+     */
+    private void scan(String queryName, Query query, Consumer<Row> consumer) {
+        scanWhile(queryName, query, row -> {
+            consumer.accept(row);
+            return true;
+        });
+    }
+
+    // scan() that stops, and cancels the stream, as soon as the consumer returns false
+    private void scanWhile(String queryName, Query query, Predicate<Row> consumer) {
+        long rows = 0;
+        long bytes = 0;
+        ServerStream<Row> stream = bigtableClient.readRows(query);
+        try {
+            for (Row row : stream) {
+                rows++;
+                bytes += rowSize(row);
+                if (!consumer.test(row)) {
+                    stream.cancel();
+                    break;
+                }
+            }
+        } finally {
+            DistributionSummary.builder("bigtable.scan.rows_returned").tag("query", queryName)
+                    .register(meterRegistry).record(rows);
+            DistributionSummary.builder("bigtable.scan.bytes_returned").tag("query", queryName).baseUnit("bytes")
+                    .register(meterRegistry).record(bytes);
+        }
+    }
+
+    private static long rowSize(Row row) {
+        long size = row.getKey().size();
+        for (RowCell cell : row.getCells()) {
+            size += cell.getFamily().length() + cell.getQualifier().size() + cell.getValue().size();
+        }
+        return size;
     }
 
     // User related methods
@@ -90,7 +259,218 @@ public class BigtableRepository {
 
     // URL related methods with owner support
     public void saveUrl(UrlEntity urlEntity) {
-        RowMutation rowMutation = RowMutation.create(TABLE_NAME, urlEntity.getId())
+        writeIndexes(urlEntity);
+        bigtableClient.mutateRow(RowMutation.create(TABLE_NAME, urlEntity.getId(), urlMutation(urlEntity)));
+    }
+
+    /**
+     * Writes a new link only if its ID is not taken, as one atomic CheckAndMutateRow.
+     *
+     * @return true if the link was written, false if a link with this ID already exists
+     */
+    public boolean claimUrl(UrlEntity urlEntity) {
+        // Bigtable has no cross-row transactions. Index and journal rows go first, so a
+        // written link is always listed and seen by other instances' ID filters; rows
+        // whose claim loses are skipped on read.
+        writeIndexes(urlEntity);
+
+        // true means the condition matched, i.e. the ID was already in use
+        return !bigtableClient.checkAndMutateRow(claim(urlEntity));
+    }
+
+    // Writes the link row unless the ID already has an original URL
+    private ConditionalRowMutation claim(UrlEntity urlEntity) {
+        return ConditionalRowMutation.create(TABLE_NAME, urlEntity.getId())
+                .condition(Filters.FILTERS.chain()
+                        .filter(Filters.FILTERS.family().exactMatch(CF_SHORT_URLS))
+                        .filter(Filters.FILTERS.qualifier().exactMatch(COL_ORIGINAL_URL)))
+                .otherwise(urlMutation(urlEntity));
+    }
+
+    /**
+     * Writes a batch of new links. Index and journal rows are written first, with one
+     * bulk mutation; a link with a failed index row is not written. Each link row is
+     * then claimed like {@link #claimUrl}, with all claims in flight at once, so a
+     * link written since the caller checked its IDs (see {@link #findExistingShortIds})
+     * is never overwritten.
+     *
+     * @return Error message per index of the links that were not written;
+     *         {@link #ID_TAKEN} for those whose ID was already in use
+     */
+    public Map<Integer, String> saveUrls(List<UrlEntity> urlEntities) {
+        if (urlEntities.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Integer, String> failed = new HashMap<>();
+
+        BulkMutation indexMutation = BulkMutation.create(TABLE_NAME);
+        List<Integer> indexed = new ArrayList<>();
+        for (int i = 0; i < urlEntities.size(); i++) {
+            List<String> keys = indexKeys(urlEntities.get(i));
+            keys.add(newIdJournalKey(urlEntities.get(i).getId()));
+            for (String indexKey : keys) {
+                indexMutation.add(indexEntry(indexKey, urlEntities.get(i).getId()));
+                indexed.add(i);
+            }
+        }
+        bulkMutate(indexMutation, indexed, failed);
+
+        Map<Integer, ApiFuture<Boolean>> claims = new LinkedHashMap<>();
+        for (int i = 0; i < urlEntities.size(); i++) {
+            if (!failed.containsKey(i)) {
+                claims.put(i, bigtableClient.checkAndMutateRowAsync(claim(urlEntities.get(i))));
+            }
+        }
+        for (Map.Entry<Integer, ApiFuture<Boolean>> entry : claims.entrySet()) {
+            try {
+                if (entry.getValue().get()) {
+                    failed.put(entry.getKey(), ID_TAKEN);
+                }
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                failed.put(entry.getKey(), e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            }
+        }
+        return failed;
+    }
+
+    // Applies a bulk mutation whose entries stand for the given positions, recording failures per position
+    private void bulkMutate(BulkMutation bulkMutation, List<Integer> positions, Map<Integer, String> failed) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        try {
+            bigtableClient.bulkMutateRows(bulkMutation);
+        } catch (MutateRowsException e) {
+            for (MutateRowsException.FailedMutation failure : e.getFailedMutations()) {
+                failed.put(positions.get(failure.getIndex()), failure.getError().getMessage());
+            }
+        } catch (Exception e) {
+            for (Integer position : positions) {
+                failed.put(position, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns which of the given IDs are already taken by a link, with a single
+     * multi-key read that only returns row keys.
+     */
+    public Set<String> findExistingShortIds(Collection<String> ids) {
+        Set<String> existing = new HashSet<>();
+        if (ids.isEmpty()) {
+            return existing;
+        }
+
+        Query query = Query.create(TABLE_NAME)
+                .filter(Filters.FILTERS.chain()
+                        .filter(Filters.FILTERS.family().exactMatch(CF_SHORT_URLS))
+                        .filter(Filters.FILTERS.qualifier().exactMatch(COL_ORIGINAL_URL))
+                        .filter(Filters.FILTERS.limit().cellsPerRow(1))
+                        .filter(Filters.FILTERS.value().strip()));
+        for (String id : ids) {
+            query.rowKey(id);
+        }
+
+        scan("existing_short_ids", query, row -> existing.add(row.getKey().toStringUtf8()));
+        return existing;
+    }
+
+    /**
+     * Atomically advances the shared short ID sequence.
+     *
+     * @param amount Number of sequence values to reserve
+     * @return The new sequence value; the caller owns [result - amount, result)
+     */
+    public long incrementShortIdSequence(long amount) {
+        Row row = bigtableClient.readModifyWriteRow(ReadModifyWriteRow.create(TABLE_NAME, SHORT_ID_SEQUENCE_ROW)
+                .increment(CF_METADATA, COL_SEQUENCE, amount));
+        return row.getCells(CF_METADATA, COL_SEQUENCE).get(0).getValue().asReadOnlyByteBuffer().getLong();
+    }
+
+    private void writeIndexes(UrlEntity urlEntity) {
+        List<String> keys = indexKeys(urlEntity);
+        keys.add(newIdJournalKey(urlEntity.getId()));
+        writeIndexRows(keys, urlEntity.getId());
+    }
+
+    private void writeIndexRows(List<String> indexKeys, String id) {
+        if (indexKeys.isEmpty()) {
+            return;
+        }
+        BulkMutation bulkMutation = BulkMutation.create(TABLE_NAME);
+        for (String indexKey : indexKeys) {
+            bulkMutation.add(indexEntry(indexKey, id));
+        }
+        bigtableClient.bulkMutateRows(bulkMutation);
+    }
+
+    private static RowMutationEntry indexEntry(String indexKey, String id) {
+        return RowMutationEntry.create(indexKey).setCell(CF_METADATA, COL_INDEXED_ID, id);
+    }
+
+    // Every index row that should point at this link, given its owner, tag and privacy
+    private static List<String> indexKeys(UrlEntity urlEntity) {
+        List<String> keys = new ArrayList<>(3);
+        String id = urlEntity.getId();
+        if (urlEntity.getOwnerId() != null) {
+            keys.add(ownerIndexPrefix(urlEntity.getOwnerId()) + id);
+        }
+        if (urlEntity.getTag() != null) {
+            keys.addAll(tagIndexKeys(urlEntity, urlEntity.getTag()));
+        }
+        return keys;
+    }
+
+    private static List<String> tagIndexKeys(UrlEntity urlEntity, String tag) {
+        List<String> keys = new ArrayList<>(2);
+        if (!urlEntity.isPrivate()) {
+            keys.add(publicTagIndexPrefix(tag) + urlEntity.getId());
+        }
+        if (urlEntity.getOwnerId() != null) {
+            keys.add(ownerTagIndexPrefix(urlEntity.getOwnerId(), tag) + urlEntity.getId());
+        }
+        return keys;
+    }
+
+    private static String newIdJournalKey(String id) {
+        return newIdJournalPrefix(System.currentTimeMillis()) + id;
+    }
+
+    // Journal rows of IDs created from this second on sort at or after this key
+    private static String newIdJournalPrefix(long epochMillis) {
+        return NEW_ID_JOURNAL_PREFIX + String.format("%010d", epochMillis / 1000) + "#";
+    }
+
+    private static String trendingSnapshotKey(String scope, String instance) {
+        return TRENDING_SNAPSHOT_PREFIX + scope + "#" + instance;
+    }
+
+    // The trailing '#' keeps one owner's prefix from matching another owner whose ID extends it
+    private static String ownerIndexPrefix(String ownerId) {
+        return OWNER_INDEX_PREFIX + ownerId + "#";
+    }
+
+    private static String publicTagIndexPrefix(String tag) {
+        return PUBLIC_TAG_INDEX_PREFIX + encodeTag(tag) + "#";
+    }
+
+    private static String ownerTagIndexPrefix(String ownerId, String tag) {
+        return OWNER_TAG_INDEX_PREFIX + ownerId + "#" + encodeTag(tag) + "#";
+    }
+
+    // Tags are free text; encoding '#' (and anything else unusual) keeps key segments unambiguous
+    private static String encodeTag(String tag) {
+        return URLEncoder.encode(tag, StandardCharsets.UTF_8);
+    }
+
+    private Mutation urlMutation(UrlEntity urlEntity) {
+        Mutation mutation = Mutation.create()
+                // A link re-created under a purged ID starts from zero, whatever a late counter flush left
+                .deleteCells(CF_METADATA, COL_CLICK_COUNTER)
                 .setCell(CF_SHORT_URLS, COL_ORIGINAL_URL, urlEntity.getOriginalUrl())
                 .setCell(CF_SHORT_URLS, COL_TAG, urlEntity.getTag())
                 .setCell(CF_METADATA, COL_CLICK_COUNT, String.valueOf(0))
@@ -98,188 +478,849 @@ public class BigtableRepository {
                         Instant.ofEpochSecond(urlEntity.getCreatedAt()).toString());
 
         if (urlEntity.getOwnerId() != null) {
-            rowMutation.setCell(CF_SHORT_URLS, COL_OWNER_ID, urlEntity.getOwnerId());
+            mutation.setCell(CF_SHORT_URLS, COL_OWNER_ID, urlEntity.getOwnerId());
         }
 
-        rowMutation.setCell(CF_METADATA, COL_IS_PRIVATE, String.valueOf(urlEntity.isPrivate()));
-
-        bigtableClient.mutateRow(rowMutation);
+        mutation.setCell(CF_METADATA, COL_IS_PRIVATE, String.valueOf(urlEntity.isPrivate()));
+        return mutation;
     }
 
     public Optional<UrlEntity> getUrlById(String id) {
-        Row row = bigtableClient.readRow(TABLE_NAME, id);
-        if (row == null) return Optional.empty();
+        Row row = bigtableClient.readRow(TABLE_NAME, id, linkColumns());
+        if (!isLiveLink(row)) return Optional.empty();
 
         UrlEntity entity = buildUrlEntityFromRow(row);
         return Optional.of(entity);
     }
 
-    public List<UrlEntity> getUrlsByOwnerId(String ownerId) {
-        List<UrlEntity> userUrls = new ArrayList<>();
-        ServerStream<Row> rows = bigtableClient.readRows(Query.create(TABLE_NAME));
+    /**
+     * Reads just what a redirect or an access check needs: the original URL, owner
+     * and privacy flag, latest versions only, so the read stays a few hundred bytes
+     * however many versions and analysis cells the row has collected. The entity
+     * has no tag, click count or access time.
+     */
+    public Optional<UrlEntity> getLinkTarget(String id) {
+        Row row = bigtableClient.readRow(TABLE_NAME, id, linkTargetColumns());
+        return isLiveLink(row) ? Optional.of(buildLinkTargetFromRow(row)) : Optional.empty();
+    }
 
-        for (Row row : rows) {
-            String rowKey = row.getKey().toStringUtf8();
-            // Skip user records
-            if (rowKey.startsWith("user#")) {
-                continue;
+    /**
+     * Non-blocking {@link #getLinkTarget}: completes on the client's callback thread
+     * once the row has been read.
+     */
+    public CompletableFuture<Optional<UrlEntity>> getLinkTargetAsync(String id) {
+        CompletableFuture<Optional<UrlEntity>> result = new CompletableFuture<>();
+        ApiFutures.addCallback(bigtableClient.readRowAsync(TABLE_NAME, id, linkTargetColumns()), new ApiFutureCallback<Row>() {
+            @Override
+            public void onSuccess(Row row) {
+                try {
+                    if (!isLiveLink(row)) {
+                        result.complete(Optional.empty());
+                    } else {
+                        result.complete(Optional.of(buildLinkTargetFromRow(row)));
+                    }
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
             }
 
-            // Skip URLs without owner or with different owner
-            if (row.getCells(CF_SHORT_URLS, COL_OWNER_ID).isEmpty()) {
-                continue;
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
             }
+        }, Runnable::run);
+        return result;
+    }
 
-            String urlOwnerId = row.getCells(CF_SHORT_URLS, COL_OWNER_ID).get(0).getValue().toStringUtf8();
-            if (urlOwnerId.equals(ownerId)) {
-                userUrls.add(buildUrlEntityFromRow(row));
-            }
+    /**
+     * Lists a user's links from the owner index: a prefix scan over the user's index
+     * rows, then multi-key reads of just those links. The cost follows the page size,
+     * not the number of links the user owns or the size of the table.
+     *
+     * @param pageToken Token from the previous page, or null for the first page
+     * @param limit     Maximum number of links on the page, at least 1
+     */
+    public UrlPage getUrlsByOwnerId(String ownerId, String pageToken, int limit) {
+        return readIndexPage("urls_by_owner", ownerIndexPrefix(ownerId),
+                link -> ownerId.equals(link.getOwnerId()), pageToken, limit);
+    }
+
+    /**
+     * Streams all of a user's links, or only those with a tag, until the sink returns
+     * false. Nothing is accumulated: links are resolved and handed over one index
+     * batch at a time, and stopping cancels the underlying stream.
+     *
+     * @param tag Tag to filter on, or null for all of the user's links
+     */
+    public void streamUrlsByOwnerId(String ownerId, String tag, Predicate<UrlEntity> sink) {
+        if (tag == null) {
+            readIndex("export_by_owner", ownerIndexPrefix(ownerId),
+                    link -> ownerId.equals(link.getOwnerId()), null, INDEX_LOOKUP_BATCH, sink);
+        } else {
+            readIndex("export_by_owner_tag", ownerTagIndexPrefix(ownerId, tag),
+                    link -> tag.equals(link.getTag()) && ownerId.equals(link.getOwnerId()), null, INDEX_LOOKUP_BATCH, sink);
         }
+    }
 
-        return userUrls;
+    // Public links with this tag, streamed like streamUrlsByOwnerId
+    public void streamUrlsByTag(String tag, Predicate<UrlEntity> sink) {
+        readIndex("export_by_tag", publicTagIndexPrefix(tag),
+                link -> tag.equals(link.getTag()) && !link.isPrivate(), null, INDEX_LOOKUP_BATCH, sink);
     }
 
-    public void incrementClickCount(String id) {
-        Row row = bigtableClient.readRow(TABLE_NAME, id);
-        if (row != null) {
-            long currentCount = Long.parseLong(row.getCells(CF_METADATA, COL_CLICK_COUNT)
-                    .get(0).getValue().toStringUtf8());
+    /**
+     * Reads one page of an index. The token is the short ID of the last entry of the
+     * previous page, so the next page resumes the row range just after it. One link
+     * past the page is looked up, so a token is only issued when another page has
+     * links; an index that ends exactly at the page boundary gets no empty last page.
+     */
+    private UrlPage readIndexPage(String queryName, String prefix, Predicate<UrlEntity> matches,
+                                  String pageToken, int limit) {
+        List<UrlEntity> items = new ArrayList<>(limit);
+        String nextId = readIndex(queryName, prefix, matches, decodePageToken(pageToken), limit + 1, link -> {
+            if (items.size() == limit) {
+                return false;
+            }
+            items.add(link);
+            return true;
+        });
+        return nextId != null ? UrlPage.of(items, encodePageToken(items.get(limit - 1).getId())) : UrlPage.last(items);
+    }
 
-            RowMutation rowMutation = RowMutation.create(TABLE_NAME, id)
-                    .setCell(CF_METADATA, COL_CLICK_COUNT, String.valueOf(currentCount + 1))
-                    .setCell(CF_METADATA, COL_LAST_ACCESS, Instant.now().toString());
+    private static String encodePageToken(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
 
-            bigtableClient.mutateRow(rowMutation);
+    // Throws IllegalArgumentException for a token that was not issued by encodePageToken
+    private static String decodePageToken(String pageToken) {
+        if (pageToken == null || pageToken.isEmpty()) {
+            return null;
         }
+        return new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
     }
 
-    public void saveClickEvent(String rowKey, String timestamp, String ip, String userAgent, String referer, String country, String deviceType, String browser) {
-        RowMutation rowMutation = RowMutation.create(TABLE_NAME, rowKey)
-                .setCell("click_events", "timestamp", timestamp)
-                .setCell("click_events", "ip_address", ip)
-                .setCell("click_events", "user_agent", userAgent)
-                .setCell("click_events", "referer", referer)
-                .setCell("click_events", "country", country)
-                .setCell("click_events", "device_type", deviceType)
-                .setCell("click_events", "browser", browser);
+    /**
+     * Streams the links behind the index rows under a prefix, in index order, until
+     * the sink asks to stop. Index rows are resolved to links in batches with
+     * multi-key reads.
+     *
+     * Index rows are written before their link changes and deleted after it, so an
+     * entry may point at a link that was never written, is gone, or no longer matches.
+     * Such entries are skipped, and deleted once they are old enough not to belong to
+     * a write in progress.
+     *
+     * @param queryName  Reported as the query tag of the scan metrics
+     * @param prefix     Row key prefix of the index entries, ending in '#'
+     * @param matches    What the link must still satisfy for the entry to be current
+     * @param startAfter Short ID to resume after, or null to start at the beginning
+     * @param batchSize  Index entries per multi-key read
+     * @param sink       Receives each link; returning false stops the read
+     * @return The short ID of the link for which the sink returned false, or null
+     *         if the index was read to the end
+     */
+    private String readIndex(String queryName, String prefix, Predicate<UrlEntity> matches, String startAfter,
+                             int batchSize, Predicate<UrlEntity> sink) {
+        ByteStringRange range = ByteStringRange.prefix(prefix);
+        if (startAfter != null) {
+            range.startOpen(prefix + startAfter);
+        }
+        Query indexQuery = Query.create(TABLE_NAME)
+                .range(range)
+                .filter(Filters.FILTERS.chain()
+                        .filter(Filters.FILTERS.limit().cellsPerRow(1))
+                        .filter(Filters.FILTERS.value().strip()));
+
+        Map<String, Long> batch = new LinkedHashMap<>();
+        List<String> staleKeys = new ArrayList<>();
+        String[] stoppedAt = {null};
+        scanWhile(queryName + "_index", indexQuery, row -> {
+            batch.put(row.getKey().toStringUtf8().substring(prefix.length()), row.getCells().get(0).getTimestamp());
+            if (batch.size() < batchSize) {
+                return true;
+            }
+            stoppedAt[0] = resolveIndexBatch(queryName, prefix, batch, matches, staleKeys, sink);
+            batch.clear();
+            return stoppedAt[0] == null;
+        });
+        if (stoppedAt[0] == null && !batch.isEmpty()) {
+            stoppedAt[0] = resolveIndexBatch(queryName, prefix, batch, matches, staleKeys, sink);
+        }
+        deleteRows(staleKeys);
 
-        bigtableClient.mutateRow(rowMutation);
+        return stoppedAt[0];
+    }
+
+    // Hands the current links of a batch of index entries (short ID -> index timestamp) to the sink.
+    // Returns the ID at which the sink stopped, or null if it took them all.
+    private String resolveIndexBatch(String queryName, String prefix, Map<String, Long> batch,
+                                     Predicate<UrlEntity> matches, List<String> staleKeys,
+                                     Predicate<UrlEntity> sink) {
+        long repairBefore = System.currentTimeMillis() * 1000 - INDEX_REPAIR_GRACE_MICROS;
+        Map<String, UrlEntity> found = getUrlsByIds(queryName, batch.keySet());
+        for (Map.Entry<String, Long> entry : batch.entrySet()) {
+            UrlEntity link = found.get(entry.getKey());
+            if (link != null && matches.test(link)) {
+                if (!sink.test(link)) {
+                    return entry.getKey();
+                }
+            } else if (entry.getValue() < repairBefore) {
+                staleKeys.add(prefix + entry.getKey());
+            }
+        }
+        return null;
     }
 
-    public List<Map<String, String>> getClickData(String shortId) {
-        List<Map<String, String>> clickEvents = new ArrayList<>();
+    // Reads the given links with one multi-key query; IDs without a link are absent from the result
+    private Map<String, UrlEntity> getUrlsByIds(String queryName, Collection<String> ids) {
+        Map<String, UrlEntity> links = new HashMap<>();
+        if (ids.isEmpty()) {
+            return links;
+        }
 
-        Query query = Query.create(TABLE_NAME)
-                .filter(
-                      Filters.FILTERS.family().exactMatch("click_events")
-                );
+        Query query = Query.create(TABLE_NAME).filter(linkColumns());
+        for (String id : ids) {
+            query.rowKey(id);
+        }
+        scan(queryName, query, row -> {
+            if (isLiveLink(row)) {
+                links.put(row.getKey().toStringUtf8(), buildUrlEntityFromRow(row));
+            }
+        });
+        return links;
+    }
+
+    // Best effort: index rows left behind are harmless and repaired by the next read that finds them
+    private void deleteRows(List<String> rowKeys) {
+        if (rowKeys.isEmpty()) {
+            return;
+        }
+        BulkMutation deletes = BulkMutation.create(TABLE_NAME);
+        for (String rowKey : rowKeys) {
+            deletes.add(RowMutationEntry.create(rowKey).deleteRow());
+        }
+        try {
+            bigtableClient.bulkMutateRows(deletes);
+        } catch (Exception e) {
+            System.err.println("Error deleting index rows: " + e.getMessage());
+        }
+    }
 
-        ServerStream<Row> rows = bigtableClient.readRows(query);
+    /**
+     * Writes the index rows of every link. Idempotent; indexes the links that were
+     * created before the indexes existed.
+     *
+     * @return Number of index rows written
+     */
+    public long backfillIndexes() throws InterruptedException {
+        // Just the cells that decide a link's index rows
+        Query query = Query.create(TABLE_NAME)
+                .filter(Filters.FILTERS.chain()
+                        .filter(Filters.FILTERS.interleave()
+                                .filter(Filters.FILTERS.chain()
+                                        .filter(Filters.FILTERS.family().exactMatch(CF_SHORT_URLS))
+                                        .filter(Filters.FILTERS.qualifier().regex(COL_OWNER_ID + "|" + COL_TAG)))
+                                .filter(Filters.FILTERS.chain()
+                                        .filter(Filters.FILTERS.family().exactMatch(CF_METADATA))
+                                        .filter(Filters.FILTERS.qualifier().exactMatch(COL_IS_PRIVATE))))
+                        .filter(Filters.FILTERS.limit().cellsPerColumn(1)));
+
+        long[] written = {0};
+        try (Batcher<RowMutationEntry, Void> batcher = bigtableClient.newBulkMutationBatcher(TABLE_NAME)) {
+            scan("backfill_indexes", query, row -> {
+                // Only link rows carry a tag
+                if (row.getCells(CF_SHORT_URLS, COL_TAG).isEmpty()) {
+                    return;
+                }
+                UrlEntity link = new UrlEntity();
+                link.setId(row.getKey().toStringUtf8());
+                link.setTag(getCellValueAsString(row, CF_SHORT_URLS, COL_TAG));
+                link.setOwnerId(getCellValueAsString(row, CF_SHORT_URLS, COL_OWNER_ID));
+                link.setPrivate(Boolean.parseBoolean(getCellValueAsString(row, CF_METADATA, COL_IS_PRIVATE)));
+
+                for (String indexKey : indexKeys(link)) {
+                    batcher.add(indexEntry(indexKey, link.getId()));
+                    written[0]++;
+                }
+            });
+        }
+        return written[0];
+    }
 
-        for (Row row : rows) {
-            String rowKey = row.getKey().toStringUtf8();
-            if (!rowKey.startsWith(shortId)) continue;
+    /**
+     * Sets a garbage collection policy that keeps only the latest cell version on
+     * every column family of the table. Counters, access times and re-saved
+     * analysis otherwise pile up versions in each link row. Collection happens at
+     * compaction, so reads still ask for the latest version themselves.
+     *
+     * @return Names of the column families updated
+     */
+    public List<String> applyGcPolicies(BigtableTableAdminClient adminClient) {
+        ModifyColumnFamiliesRequest request = ModifyColumnFamiliesRequest.of(TABLE_NAME);
+        List<String> families = new ArrayList<>();
+        for (ColumnFamily family : adminClient.getTable(TABLE_NAME).getColumnFamilies()) {
+            request.updateFamily(family.getId(), GCRules.GCRULES.maxVersions(1));
+            families.add(family.getId());
+        }
+        if (!families.isEmpty()) {
+            adminClient.modifyFamilies(request);
+        }
+        return families;
+    }
 
-            Map<String, String> clickData = new HashMap<>();
-            clickData.put("timestamp", row.getCells("click_events", "timestamp").get(0).getValue().toStringUtf8());
-            clickData.put("device_type", row.getCells("click_events", "device_type").get(0).getValue().toStringUtf8());
-            clickData.put("browser", row.getCells("click_events", "browser").get(0).getValue().toStringUtf8());
-            clickData.put("country", row.getCells("click_events", "country").get(0).getValue().toStringUtf8());
+    /**
+     * Applies coalesced click deltas as atomic increments of the binary click counter,
+     * and writes one last_access value per link.
+     *
+     * @param deltas     Clicks to add per link ID
+     * @param lastAccess Latest access time per link ID, in epoch millis
+     * @return The deltas whose increment failed. Some may have been applied all the
+     *         same (e.g. a deadline exceeded after the write), so they must not be retried
+     */
+    public Map<String, Long> incrementClickCounts(Map<String, Long> deltas, Map<String, Long> lastAccess) {
+        Map<String, ApiFuture<Row>> increments = new HashMap<>();
+        for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+            ReadModifyWriteRow increment = ReadModifyWriteRow.create(TABLE_NAME, entry.getKey())
+                    .increment(CF_METADATA, COL_CLICK_COUNTER, entry.getValue());
+            increments.put(entry.getKey(), bigtableClient.readModifyWriteRowAsync(increment));
+        }
 
-            clickEvents.add(clickData);
+        // last_access is informational; a failed write is simply superseded by the next flush
+        BulkMutation accessUpdates = BulkMutation.create(TABLE_NAME);
+        lastAccess.forEach((id, millis) -> accessUpdates.add(RowMutationEntry.create(id)
+                .setCell(CF_METADATA, COL_LAST_ACCESS, Instant.ofEpochMilli(millis).toString())));
+        try {
+            bigtableClient.bulkMutateRows(accessUpdates);
+        } catch (Exception e) {
+            System.err.println("Error updating last access: " + e.getMessage());
         }
 
-        return clickEvents;
+        Map<String, Long> failed = new HashMap<>();
+        for (Map.Entry<String, ApiFuture<Row>> entry : increments.entrySet()) {
+            try {
+                entry.getValue().get();
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                failed.put(entry.getKey(), deltas.get(entry.getKey()));
+            }
+        }
+        return failed;
     }
 
-    public List<UrlEntity> getUrlsByTag(String tag) {
-        List<UrlEntity> matchingUrls = new ArrayList<>();
-        ServerStream<Row> rows = bigtableClient.readRows(Query.create(TABLE_NAME));
+    /**
+     * Writes a batch of enriched click events with one bulk mutation, then adds the
+     * stored clicks to their hourly and daily rollups.
+     *
+     * Each click is one binary record cell. The full User-Agent and referer are kept
+     * only if asked for, as a hash in the record plus a dictionary row per distinct
+     * value, written in the same bulk mutation the first time this process sees it.
+     */
+    public void saveClickEvents(List<ClickEvent> events, boolean keepUserAgent, boolean keepReferer) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        BulkMutation bulkMutation = BulkMutation.create(TABLE_NAME);
+        Map<String, String> newDictionaryRows = new LinkedHashMap<>();
+        for (ClickEvent event : events) {
+            long userAgentHash = keepUserAgent
+                    ? dictionaryHash(USER_AGENT_DICTIONARY_PREFIX, event.getUserAgent(), newDictionaryRows) : 0;
+            long refererHash = keepReferer
+                    ? dictionaryHash(REFERER_DICTIONARY_PREFIX, event.getReferer(), newDictionaryRows) : 0;
+            String rowKey = ClickEventKeys.newKey(event.getShortId(), event.getTimestamp());
+
+            bulkMutation.add(RowMutationEntry.create(rowKey)
+                    .setCell(CF_CLICK_EVENTS, COL_CLICK_RECORD, ClickRecordCodec.encode(event, userAgentHash, refererHash)));
+        }
+        // After the clicks, so that failure indexes below events.size() are clicks
+        List<String> dictionaryKeys = new ArrayList<>(newDictionaryRows.keySet());
+        newDictionaryRows.forEach((key, value) ->
+                bulkMutation.add(RowMutationEntry.create(key).setCell(CF_METADATA, COL_DICTIONARY_VALUE, value)));
 
-        for (Row row : rows) {
-            String rowKey = row.getKey().toStringUtf8();
-            // Skip user records
-            if (rowKey.startsWith("user#")) {
-                continue;
+        try {
+            bigtableClient.bulkMutateRows(bulkMutation);
+        } catch (MutateRowsException e) {
+            // Count the clicks that were stored before reporting the failure
+            Set<Integer> failed = new HashSet<>();
+            for (MutateRowsException.FailedMutation failure : e.getFailedMutations()) {
+                failed.add(failure.getIndex());
+            }
+            List<ClickEvent> stored = new ArrayList<>();
+            for (int i = 0; i < events.size(); i++) {
+                if (!failed.contains(i)) {
+                    stored.add(events.get(i));
+                }
+            }
+            // A dictionary row that failed is written again with the next click that uses it
+            for (int i = 0; i < dictionaryKeys.size(); i++) {
+                if (!failed.contains(events.size() + i)) {
+                    storedDictionaryRows.put(dictionaryKeys.get(i), Boolean.TRUE);
+                }
             }
+            incrementClickRollups(stored);
+            throw e;
+        }
+        dictionaryKeys.forEach(key -> storedDictionaryRows.put(key, Boolean.TRUE));
+        incrementClickRollups(events);
+    }
 
-            // Check if the column family and column exist for this row
-            if (row.getCells(CF_SHORT_URLS, COL_TAG).isEmpty()) {
-                continue;
+    // Hash of a User-Agent or referer for the click record, queueing its dictionary row if it may not exist yet
+    private long dictionaryHash(String prefix, String value, Map<String, String> newDictionaryRows) {
+        long hash = ClickRecordCodec.valueHash(value);
+        if (hash != 0) {
+            String key = prefix + Long.toHexString(hash);
+            if (storedDictionaryRows.getIfPresent(key) == null) {
+                newDictionaryRows.putIfAbsent(key, value);
             }
+        }
+        return hash;
+    }
 
-            String rowTag = row.getCells(CF_SHORT_URLS, COL_TAG).get(0).getValue().toStringUtf8();
+    // One increment per rollup row touched by the batch, however many clicks it holds
+    private void incrementClickRollups(List<ClickEvent> events) {
+        Map<String, Map<String, Long>> rollups = new HashMap<>();
+        for (ClickEvent event : events) {
+            addToRollups(rollups, event.getShortId(), event.getTimestamp(),
+                    event.getDeviceType(), event.getBrowser(), event.getCountry());
+        }
 
-            // Check if the other required columns exist
-            if (rowTag.equals(tag) &&
-                    !row.getCells(CF_SHORT_URLS, COL_ORIGINAL_URL).isEmpty() &&
-                    !row.getCells(CF_METADATA, COL_LAST_ACCESS).isEmpty() &&
-                    !row.getCells(CF_METADATA, COL_CLICK_COUNT).isEmpty()) {
+        List<ApiFuture<Row>> increments = new ArrayList<>(rollups.size());
+        rollups.forEach((key, counters) -> {
+            ReadModifyWriteRow increment = ReadModifyWriteRow.create(TABLE_NAME, key);
+            counters.forEach((qualifier, delta) -> increment.increment(CF_METADATA, qualifier, delta));
+            increments.add(bigtableClient.readModifyWriteRowAsync(increment));
+        });
+
+        // Increments are not retried: a retry after an unacknowledged success would count twice
+        int failed = 0;
+        for (ApiFuture<Row> increment : increments) {
+            try {
+                increment.get();
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            System.err.println("Error updating " + failed + " of " + increments.size() + " click rollup rows");
+        }
+    }
 
-                // All required columns exist, safe to proceed
-                UrlEntity urlEntity = buildUrlEntityFromRow(row);
+    private static void addToRollups(Map<String, Map<String, Long>> rollups, String shortId, long epochMillis,
+                                     String device, String browser, String country) {
+        for (String key : List.of(ClickRollupKeys.hourKey(shortId, epochMillis), ClickRollupKeys.dayKey(shortId, epochMillis))) {
+            Map<String, Long> counters = rollups.computeIfAbsent(key, k -> new HashMap<>());
+            counters.merge(COL_ROLLUP_TOTAL, 1L, Long::sum);
+            counters.merge(ROLLUP_DEVICE_PREFIX + nullToEmpty(device), 1L, Long::sum);
+            counters.merge(ROLLUP_BROWSER_PREFIX + nullToEmpty(browser), 1L, Long::sum);
+            counters.merge(ROLLUP_COUNTRY_PREFIX + nullToEmpty(country), 1L, Long::sum);
+        }
+    }
 
-                // Skip private URLs unless requested by owner
-                if (urlEntity.isPrivate()) {
+    /**
+     * Reads the click rollups of one link in the given row ranges, as built by
+     * {@link ClickRollupKeys}. The cost depends on the number of hours and days
+     * covered, not on the number of clicks.
+     */
+    public List<ClickRollup> getClickRollups(String shortId, List<ByteStringRange> ranges) {
+        Query query = Query.create(TABLE_NAME);
+        ranges.forEach(query::range);
+        query.filter(Filters.FILTERS.chain()
+                .filter(Filters.FILTERS.family().exactMatch(CF_METADATA))
+                .filter(Filters.FILTERS.limit().cellsPerColumn(1)));
+
+        List<ClickRollup> rollups = new ArrayList<>();
+        scan("click_rollups", query, row -> {
+            ClickRollup rollup = new ClickRollup(ClickRollupKeys.startMillis(row.getKey().toStringUtf8()));
+            for (RowCell cell : row.getCells(CF_METADATA)) {
+                if (cell.getValue().size() != Long.BYTES) {
                     continue;
                 }
+                String qualifier = cell.getQualifier().toStringUtf8();
+                long count = cell.getValue().asReadOnlyByteBuffer().getLong();
+                if (qualifier.equals(COL_ROLLUP_TOTAL)) {
+                    rollup.addTotal(count);
+                } else if (qualifier.startsWith(ROLLUP_DEVICE_PREFIX)) {
+                    rollup.addDevice(qualifier.substring(ROLLUP_DEVICE_PREFIX.length()), count);
+                } else if (qualifier.startsWith(ROLLUP_BROWSER_PREFIX)) {
+                    rollup.addBrowser(qualifier.substring(ROLLUP_BROWSER_PREFIX.length()), count);
+                } else if (qualifier.startsWith(ROLLUP_COUNTRY_PREFIX)) {
+                    rollup.addCountry(qualifier.substring(ROLLUP_COUNTRY_PREFIX.length()), count);
+                }
+            }
+            rollups.add(rollup);
+        });
+        return rollups;
+    }
 
-                matchingUrls.add(urlEntity);
+    /**
+     * Rebuilds the click rollups of every link from its raw click events, for clicks
+     * stored before rollups existed. Each link's rollup rows are overwritten with
+     * absolute counts, so the command can be re-run, but increments landing while a
+     * link is being rebuilt are lost: run it before click ingestion starts updating
+     * rollups, or while it is paused.
+     *
+     * @return Number of rollup rows written
+     */
+    public long backfillClickRollups() throws InterruptedException {
+        // Collect the IDs first rather than holding the table scan open for the whole rebuild
+        List<String> ids = new ArrayList<>();
+        forEachShortId(ids::add);
+
+        ClickStreamAggregator aggregator = new ClickStreamAggregator();
+        long written = 0;
+        try (Batcher<RowMutationEntry, Void> batcher = bigtableClient.newBulkMutationBatcher(TABLE_NAME)) {
+            for (String id : ids) {
+                aggregator.reset(id, 0, Long.MAX_VALUE);
+                scan("backfill_rollups", allClickEventsQuery(id, CLICK_AGGREGATION_PROJECTION), aggregator::add);
+
+                written += writeRollups(batcher, aggregator, HOUR_MILLIS, bucket -> ClickRollupKeys.hourKey(id, bucket));
+                written += writeRollups(batcher, aggregator, DAY_MILLIS, bucket -> ClickRollupKeys.dayKey(id, bucket));
             }
         }
-        return matchingUrls;
+        return written;
     }
 
-    public List<UrlEntity> getUrlsByTagAndOwnerId(String tag, String ownerId) {
-        List<UrlEntity> matchingUrls = new ArrayList<>();
-        ServerStream<Row> rows = bigtableClient.readRows(Query.create(TABLE_NAME));
-
-        for (Row row : rows) {
-            String rowKey = row.getKey().toStringUtf8();
-            // Skip user records
-            if (rowKey.startsWith("user#")) {
-                continue;
+    // Replaces one rollup row per bucket with the aggregated counts; returns the number of rows
+    private static long writeRollups(Batcher<RowMutationEntry, Void> batcher, ClickStreamAggregator aggregator,
+                                     long bucketMillis, LongFunction<String> rowKey) {
+        RowMutationEntry[] entry = {null};
+        long[] rows = {0};
+        aggregator.forEach(bucketMillis, (bucketStart, dimension, value, count) -> {
+            // The total opens each bucket
+            if (dimension == ClickStreamAggregator.Dimension.TOTAL) {
+                if (entry[0] != null) {
+                    batcher.add(entry[0]);
+                }
+                entry[0] = RowMutationEntry.create(rowKey.apply(bucketStart)).deleteRow();
+                rows[0]++;
             }
+            entry[0].setCell(CF_METADATA, rollupQualifier(dimension, value), count);
+        });
+        if (entry[0] != null) {
+            batcher.add(entry[0]);
+        }
+        return rows[0];
+    }
 
-            // Skip records without tag or owner
-            if (row.getCells(CF_SHORT_URLS, COL_TAG).isEmpty() ||
-                    row.getCells(CF_SHORT_URLS, COL_OWNER_ID).isEmpty()) {
-                continue;
-            }
+    private static String rollupQualifier(ClickStreamAggregator.Dimension dimension, String value) {
+        switch (dimension) {
+            case DEVICE:
+                return ROLLUP_DEVICE_PREFIX + value;
+            case BROWSER:
+                return ROLLUP_BROWSER_PREFIX + value;
+            case COUNTRY:
+                return ROLLUP_COUNTRY_PREFIX + value;
+            case TOTAL:
+            default:
+                return COL_ROLLUP_TOTAL;
+        }
+    }
+
+    /**
+     * Counts the clicks of one link in a time window into an aggregator, row by row
+     * as they stream, over exact row ranges.
+     *
+     * Clicks written before the time-sortable key layout sort by CST wall-clock time,
+     * which repeats or skips an hour at DST changes, so their range is widened by an
+     * hour on each side; the aggregator drops clicks outside the window.
+     *
+     * @param fromMillis Start of the window, inclusive
+     * @param toMillis   End of the window, exclusive
+     * @return The aggregator, reset to the window and holding its clicks
+     */
+    public ClickStreamAggregator aggregateClicks(String shortId, long fromMillis, long toMillis,
+                                                 ClickStreamAggregator aggregator) {
+        Query query = Query.create(TABLE_NAME)
+                .range(ClickEventKeys.range(shortId, fromMillis, toMillis))
+                .range(legacyClickRange(shortId, fromMillis - LEGACY_CLICK_KEY_SLACK_MILLIS,
+                        toMillis + LEGACY_CLICK_KEY_SLACK_MILLIS))
+                .filter(clickEventsFilter(shortId, CLICK_AGGREGATION_PROJECTION));
+
+        aggregator.reset(shortId, fromMillis, toMillis);
+        scan("click_data", query, aggregator::add);
+        return aggregator;
+    }
+
+    // Every click row of one link, in both key layouts
+    private static Query allClickEventsQuery(String shortId, Filters.Filter projection) {
+        return Query.create(TABLE_NAME)
+                .range(ClickEventKeys.all(shortId))
+                .prefix(shortId + "_")
+                .filter(clickEventsFilter(shortId, projection));
+    }
 
-            String rowTag = row.getCells(CF_SHORT_URLS, COL_TAG).get(0).getValue().toStringUtf8();
-            String rowOwnerId = row.getCells(CF_SHORT_URLS, COL_OWNER_ID).get(0).getValue().toStringUtf8();
+    /**
+     * Keeps only the click rows of this link within the requested ranges. Legacy keys,
+     * <shortId>_<ZonedDateTime>_<UUID>, are read by prefix, and the key regex stops a
+     * link whose ID extends this one (abc and abc_def) from matching.
+     */
+    private static Filters.Filter clickEventsFilter(String shortId, Filters.Filter projection) {
+        return Filters.FILTERS.chain()
+                .filter(Filters.FILTERS.key().regex(quoteRegex(shortId)
+                        + "(#[0-9]{13}#\\C*|_[0-9]{4}-[^_]*_[0-9a-f-]{36})"))
+                .filter(Filters.FILTERS.family().exactMatch(CF_CLICK_EVENTS))
+                .filter(projection);
+    }
+
+    // Legacy click keys between two instants, by their CST wall-clock prefix
+    private static ByteStringRange legacyClickRange(String shortId, long fromMillis, long toMillis) {
+        return ByteStringRange.unbounded()
+                .startClosed(shortId + "_" + legacyKeyTime(fromMillis))
+                .endOpen(shortId + "_" + legacyKeyTime(toMillis));
+    }
 
-            // Check matching tag and owner
-            if (rowTag.equals(tag) && rowOwnerId.equals(ownerId) &&
-                    !row.getCells(CF_SHORT_URLS, COL_ORIGINAL_URL).isEmpty() &&
-                    !row.getCells(CF_METADATA, COL_LAST_ACCESS).isEmpty() &&
-                    !row.getCells(CF_METADATA, COL_CLICK_COUNT).isEmpty()) {
+    private static String legacyKeyTime(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(CLICK_TIMESTAMP_ZONE).toLocalDateTime().toString();
+    }
 
-                // All required columns exist, safe to proceed
-                matchingUrls.add(buildUrlEntityFromRow(row));
+    // RE2 literal for a row key fragment
+    private static String quoteRegex(String literal) {
+        StringBuilder quoted = new StringBuilder(literal.length() + 8);
+        for (char c : literal.toCharArray()) {
+            if ("\\.^$|?*+()[]{}".indexOf(c) >= 0) {
+                quoted.append('\\');
             }
+            quoted.append(c);
         }
-        return matchingUrls;
+        return quoted.toString();
+    }
+
+    // Public links with this tag, from the public partition of the tag index
+    public UrlPage getUrlsByTag(String tag, String pageToken, int limit) {
+        return readIndexPage("urls_by_tag", publicTagIndexPrefix(tag),
+                link -> tag.equals(link.getTag()) && !link.isPrivate(), pageToken, limit);
+    }
+
+    // A user's links with this tag, private ones included, from the owner partition of the tag index
+    public UrlPage getUrlsByTagAndOwnerId(String tag, String ownerId, String pageToken, int limit) {
+        return readIndexPage("urls_by_owner_tag", ownerTagIndexPrefix(ownerId, tag),
+                link -> tag.equals(link.getTag()) && ownerId.equals(link.getOwnerId()), pageToken, limit);
+    }
+
+    /**
+     * Changes a link's tag. The new index rows are written before the link and the
+     * old ones deleted after it, so the link is listed under its tag throughout.
+     */
+    public void updateTag(UrlEntity urlEntity, String tag) {
+        List<String> oldKeys = tagIndexKeys(urlEntity, urlEntity.getTag());
+        writeIndexRows(tagIndexKeys(urlEntity, tag), urlEntity.getId());
+
+        bigtableClient.mutateRow(RowMutation.create(TABLE_NAME, urlEntity.getId())
+                .setCell(CF_SHORT_URLS, COL_TAG, tag));
+
+        List<String> newKeys = tagIndexKeys(urlEntity, tag);
+        oldKeys.removeAll(newKeys);
+        deleteRows(oldKeys);
+        urlEntity.setTag(tag);
     }
 
-    public void deleteUrl(String id) {
-        // delete URL self
+    /**
+     * First step of deleting a link: records the deletion, tombstones the link so that
+     * every read treats it as gone, and removes its index rows. The row itself keeps
+     * the ID taken until {@link #purgeDeletedUrl} has removed its clicks.
+     */
+    public void markDeleted(UrlEntity urlEntity) {
+        String id = urlEntity.getId();
+        String now = Instant.now().toString();
+
+        bigtableClient.mutateRow(RowMutation.create(TABLE_NAME, DELETION_MARKER_PREFIX + id)
+                .setCell(CF_METADATA, COL_INDEXED_ID, id)
+                .setCell(CF_METADATA, COL_DELETED_AT, now));
+        bigtableClient.mutateRow(RowMutation.create(TABLE_NAME, id)
+                .setCell(CF_METADATA, COL_DELETED_AT, now));
+        deleteRows(indexKeys(urlEntity));
+    }
+
+    /**
+     * Removes a tombstoned link for good: its click events in both key layouts and
+     * its click rollups, with batched bulk deletes over the link's key ranges, then
+     * the link row and the deletion marker. Safe to run again after a failure.
+     *
+     * Clicks written after the purge would be left under the ID, so it must only run
+     * once nothing can still serve or count the link (see LinkDeletionService).
+     *
+     * @param progress Receives the number of click events deleted, batch by batch
+     * @return Number of click events deleted
+     */
+    public long purgeDeletedUrl(String id, LongConsumer progress) throws InterruptedException {
+        // this URL's click_events, keys only
+        Query query = allClickEventsQuery(id, Filters.FILTERS.chain()
+                .filter(Filters.FILTERS.limit().cellsPerRow(1))
+                .filter(Filters.FILTERS.value().strip()));
+
+        long[] deleted = {0};
+        try (Batcher<RowMutationEntry, Void> batcher = bigtableClient.newBulkMutationBatcher(TABLE_NAME)) {
+            scan("click_keys", query, row -> {
+                batcher.add(RowMutationEntry.create(row.getKey()).deleteRow());
+                if (++deleted[0] % CLICK_DELETE_PROGRESS_EVERY == 0) {
+                    progress.accept(CLICK_DELETE_PROGRESS_EVERY);
+                }
+            });
+            scan("rollup_keys", Query.create(TABLE_NAME)
+                    .range(ClickRollupKeys.all(id))
+                    .filter(Filters.FILTERS.chain()
+                            .filter(Filters.FILTERS.limit().cellsPerRow(1))
+                            .filter(Filters.FILTERS.value().strip())),
+                    row -> batcher.add(RowMutationEntry.create(row.getKey()).deleteRow()));
+        }
+        progress.accept(deleted[0] % CLICK_DELETE_PROGRESS_EVERY);
+
         bigtableClient.mutateRow(RowMutation.create(TABLE_NAME, id).deleteRow());
+        bigtableClient.mutateRow(RowMutation.create(TABLE_NAME, DELETION_MARKER_PREFIX + id).deleteRow());
+        return deleted[0];
+    }
 
-        // search for this URL's click_events
+    // Links whose deletion was started but not finished, e.g. before a restart: ID -> deletion time (epoch millis)
+    public Map<String, Long> findPendingDeletions() {
+        Map<String, Long> deletions = new LinkedHashMap<>();
         Query query = Query.create(TABLE_NAME)
-                .filter(Filters.FILTERS.family().exactMatch("click_events"));
+                .prefix(DELETION_MARKER_PREFIX)
+                .filter(Filters.FILTERS.chain()
+                        .filter(Filters.FILTERS.family().exactMatch(CF_METADATA))
+                        .filter(Filters.FILTERS.qualifier().exactMatch(COL_DELETED_AT))
+                        .filter(Filters.FILTERS.limit().cellsPerColumn(1)));
+        scan("pending_deletions", query, row -> deletions.put(
+                row.getKey().toStringUtf8().substring(DELETION_MARKER_PREFIX.length()),
+                Instant.parse(row.getCells().get(0).getValue().toStringUtf8()).toEpochMilli()));
+        return deletions;
+    }
 
-        ServerStream<Row> rows = bigtableClient.readRows(query);
+    /**
+     * Writes an instance's trending-link snapshots, replacing its previous ones,
+     * with one bulk mutation.
+     *
+     * @param instance  Tag of the writing instance, without '#'
+     * @param snapshots Snapshot per scope
+     */
+    public void saveTrendingSnapshots(String instance, Map<String, byte[]> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        BulkMutation bulkMutation = BulkMutation.create(TABLE_NAME);
+        snapshots.forEach((scope, snapshot) -> bulkMutation.add(RowMutationEntry.create(trendingSnapshotKey(scope, instance))
+                .deleteCells(CF_METADATA, COL_SNAPSHOT)
+                .setCell(CF_METADATA, ByteString.copyFromUtf8(COL_SNAPSHOT), ByteString.copyFrom(snapshot))));
+        bigtableClient.bulkMutateRows(bulkMutation);
+    }
 
-        for (Row row : rows) {
-            String rowKey = row.getKey().toStringUtf8();
-            // if start with shortId
-            if (rowKey.startsWith(id + "_")) {
-                bigtableClient.mutateRow(RowMutation.create(TABLE_NAME, rowKey).deleteRow());
+    /**
+     * Latest snapshot of one trending view from every instance that has written
+     * one, with one prefix read.
+     *
+     * @return Snapshot per instance tag
+     */
+    public Map<String, byte[]> loadTrendingSnapshots(String scope) {
+        String prefix = trendingSnapshotKey(scope, "");
+        Map<String, byte[]> snapshots = new HashMap<>();
+        Query query = Query.create(TABLE_NAME)
+                .prefix(prefix)
+                .filter(Filters.FILTERS.chain()
+                        .filter(Filters.FILTERS.family().exactMatch(CF_METADATA))
+                        .filter(Filters.FILTERS.qualifier().exactMatch(COL_SNAPSHOT))
+                        .filter(Filters.FILTERS.limit().cellsPerColumn(1)));
+        scan("trending_snapshots", query, row -> {
+            String instance = row.getKey().toStringUtf8().substring(prefix.length());
+            // Owner IDs may contain '#', so the prefix also matches views of other owners
+            if (instance.indexOf('#') < 0) {
+                snapshots.put(instance, row.getCells().get(0).getValue().toByteArray());
             }
+        });
+        return snapshots;
+    }
+
+    /**
+     * Deletes the trending snapshots last written before a time, which instances
+     * that have stopped leave behind.
+     *
+     * @return Number of snapshot rows deleted
+     */
+    public long deleteTrendingSnapshotsBefore(long beforeMillis) throws InterruptedException {
+        Query query = Query.create(TABLE_NAME)
+                .prefix(TRENDING_SNAPSHOT_PREFIX)
+                .filter(Filters.FILTERS.chain()
+                        .filter(Filters.FILTERS.family().exactMatch(CF_METADATA))
+                        .filter(Filters.FILTERS.qualifier().exactMatch(COL_SNAPSHOT))
+                        .filter(Filters.FILTERS.limit().cellsPerColumn(1))
+                        .filter(Filters.FILTERS.value().strip()));
+
+        long[] deleted = {0};
+        try (Batcher<RowMutationEntry, Void> batcher = bigtableClient.newBulkMutationBatcher(TABLE_NAME)) {
+            scan("stale_trending_snapshots", query, row -> {
+                if (row.getCells().get(0).getTimestamp() < beforeMillis * 1000) {
+                    batcher.add(RowMutationEntry.create(row.getKey()).deleteRow());
+                    deleted[0]++;
+                }
+            });
         }
+        return deleted[0];
+    }
+
+    /**
+     * Streams the ID of every short link. Only link rows match, and the server
+     * returns just their keys: one stripped original_url cell per row. A full table
+     * scan; see {@link #forEachNewShortId} for recent IDs.
+     */
+    public void forEachShortId(Consumer<String> consumer) {
+        Filters.Filter filter = Filters.FILTERS.chain()
+                .filter(Filters.FILTERS.family().exactMatch(CF_SHORT_URLS))
+                .filter(Filters.FILTERS.qualifier().exactMatch(COL_ORIGINAL_URL))
+                .filter(Filters.FILTERS.limit().cellsPerRow(1))
+                .filter(Filters.FILTERS.value().strip());
+
+        scan("short_ids", Query.create(TABLE_NAME).filter(filter), row -> consumer.accept(row.getKey().toStringUtf8()));
+    }
+
+    /**
+     * Streams the IDs created since a time, from the journal rows written with each
+     * link. Only the journal range from that second on is read, so the cost follows
+     * the number of IDs created since, not the size of the table. The journal may
+     * name IDs whose claim lost, and is kept for a limited time (see
+     * {@link #deleteNewShortIdsBefore}).
+     *
+     * @param sinceMillis Writer clock time of the oldest journal rows to read
+     */
+    public void forEachNewShortId(long sinceMillis, Consumer<String> consumer) {
+        String start = newIdJournalPrefix(Math.max(0, sinceMillis));
+        Query query = Query.create(TABLE_NAME)
+                .range(ByteStringRange.prefix(NEW_ID_JOURNAL_PREFIX).startClosed(start))
+                .filter(Filters.FILTERS.chain()
+                        .filter(Filters.FILTERS.limit().cellsPerRow(1))
+                        .filter(Filters.FILTERS.value().strip()));
+        scan("new_short_ids", query, row -> consumer.accept(row.getKey().toStringUtf8().substring(start.length())));
+    }
+
+    /**
+     * Deletes the journal rows of IDs created before a time, with batched bulk
+     * deletes over that part of the journal range.
+     *
+     * @return Number of journal rows deleted
+     */
+    public long deleteNewShortIdsBefore(long beforeMillis) throws InterruptedException {
+        Query query = Query.create(TABLE_NAME)
+                .range(ByteStringRange.prefix(NEW_ID_JOURNAL_PREFIX).endOpen(newIdJournalPrefix(beforeMillis)))
+                .filter(Filters.FILTERS.chain()
+                        .filter(Filters.FILTERS.limit().cellsPerRow(1))
+                        .filter(Filters.FILTERS.value().strip()));
+
+        long[] deleted = {0};
+        try (Batcher<RowMutationEntry, Void> batcher = bigtableClient.newBulkMutationBatcher(TABLE_NAME)) {
+            scan("new_short_id_keys", query, row -> {
+                batcher.add(RowMutationEntry.create(row.getKey()).deleteRow());
+                deleted[0]++;
+            });
+        }
+        return deleted[0];
+    }
+
+    // A counter flush racing a delete can leave a row without the link itself; a tombstoned link is being deleted
+    private static boolean isLiveLink(Row row) {
+        return row != null
+                && !row.getCells(CF_SHORT_URLS, COL_ORIGINAL_URL).isEmpty()
+                && row.getCells(CF_METADATA, COL_DELETED_AT).isEmpty();
     }
 
     public boolean shortIdExists(String shortId) {
@@ -291,8 +1332,7 @@ public class BigtableRepository {
         String id = row.getKey().toStringUtf8();
         String originalUrl = row.getCells(CF_SHORT_URLS, COL_ORIGINAL_URL)
                 .get(0).getValue().toStringUtf8();
-        long clickCount = Long.parseLong(row.getCells(CF_METADATA, COL_CLICK_COUNT)
-                .get(0).getValue().toStringUtf8());
+        long clickCount = readClickCount(row);
         String lastAccess = row.getCells(CF_METADATA, COL_LAST_ACCESS)
                 .get(0).getValue().toStringUtf8();
         String tag = row.getCells(CF_SHORT_URLS, COL_TAG).get(0).getValue().toStringUtf8();
@@ -323,13 +1363,25 @@ public class BigtableRepository {
         return entity;
     }
 
+    // UrlEntity from a row read with linkTargetColumns()
+    private UrlEntity buildLinkTargetFromRow(Row row) {
+        UrlEntity entity = new UrlEntity();
+        entity.setId(row.getKey().toStringUtf8());
+        entity.setOriginalUrl(row.getCells(CF_SHORT_URLS, COL_ORIGINAL_URL).get(0).getValue().toStringUtf8());
+        entity.setOwnerId(getCellValueAsString(row, CF_SHORT_URLS, COL_OWNER_ID));
+        entity.setPrivate(Boolean.parseBoolean(getCellValueAsString(row, CF_METADATA, COL_IS_PRIVATE)));
+        return entity;
+    }
+
     public Optional<UserEntity> getUserByProviderAndId(String provider, String providerId) {
         // Construct the row key as it appears in Bigtable
         String rowKey = "user#" + provider + "#" + providerId;
 
         try {
-            // Read the row directly using the constructed key
-            Row row = bigtableClient.readRow(TABLE_NAME, rowKey);
+            // Read the row directly using the constructed key, latest user data only
+            Row row = bigtableClient.readRow(TABLE_NAME, rowKey, Filters.FILTERS.chain()
+                    .filter(Filters.FILTERS.family().exactMatch(CF_USER_DATA))
+                    .filter(Filters.FILTERS.limit().cellsPerColumn(1)));
 
             if (row == null) {
                 return Optional.empty();
@@ -348,7 +1400,10 @@ public class BigtableRepository {
 
     // Get cached analysis for a URL
     public Optional<Map<String, String>> getAnalysisForUrl(String id) {
-        Row row = bigtableClient.readRow(TABLE_NAME, id);
+        Row row = bigtableClient.readRow(TABLE_NAME, id, Filters.FILTERS.chain()
+                .filter(Filters.FILTERS.family().exactMatch(CF_SHORT_URLS))
+                .filter(Filters.FILTERS.qualifier().regex("summary|keywords"))
+                .filter(Filters.FILTERS.limit().cellsPerColumn(1)));
         if (row == null) return Optional.empty();
 
         // Check if summary exists in the CF_SHORT_URLS column family
@@ -409,6 +1464,24 @@ public class BigtableRepository {
         return user;
     }
 
+    // Total clicks: the legacy string count plus the binary counter maintained by increments
+    private long readClickCount(Row row) {
+        long clickCount = 0;
+        List<RowCell> legacyCells = row.getCells(CF_METADATA, COL_CLICK_COUNT);
+        if (!legacyCells.isEmpty()) {
+            clickCount += Long.parseLong(legacyCells.get(0).getValue().toStringUtf8());
+        }
+        List<RowCell> counterCells = row.getCells(CF_METADATA, COL_CLICK_COUNTER);
+        if (!counterCells.isEmpty()) {
+            clickCount += counterCells.get(0).getValue().asReadOnlyByteBuffer().getLong();
+        }
+        return clickCount;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
     // Helper method to safely get cell value as string
     private String getCellValueAsString(Row row, String columnFamily, String qualifier) {
         if (row.getCells(columnFamily, qualifier).isEmpty()) {
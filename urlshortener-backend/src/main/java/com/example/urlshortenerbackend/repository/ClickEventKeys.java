@@ -0,0 +1,62 @@
+package com.example.urlshortenerbackend.repository;
+
+import com.google.cloud.bigtable.data.v2.models.Range.ByteStringRange;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Row keys of click events: {@code <shortId>#<epoch millis, 13 digits>#<suffix>}.
+ *
+ * The fixed-width timestamp makes a link's clicks sort by time, so any time
+ * window is one contiguous row range. '#' cannot appear in a short ID, so one
+ * link's range never contains another link's clicks. The suffix only has to
+ * keep clicks in the same millisecond apart: a random per-process tag plus a
+ * counter, with no SecureRandom involved.
+ *
+ * Clicks written before this layout are keyed
+ * {@code <shortId>_<ZonedDateTime>_<UUID>}; see {@link BigtableRepository#aggregateClicks}.
+ */
+public final class ClickEventKeys {
+
+    private static final String SEPARATOR = "#";
+    // Epoch millis have 13 digits from 2001 until the year 2286
+    private static final String ZEROS = "0000000000000";
+
+    private static final String INSTANCE_TAG = Long.toString(ThreadLocalRandom.current().nextLong(36L * 36 * 36 * 36 * 36 * 36), 36);
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private ClickEventKeys() {
+    }
+
+    public static String newKey(String shortId, long epochMillis) {
+        return prefix(shortId) + fixedWidth(epochMillis) + SEPARATOR
+                + INSTANCE_TAG + "-" + Long.toString(SEQUENCE.incrementAndGet(), 36);
+    }
+
+    // Clicks at or after fromMillis and before toMillis
+    public static ByteStringRange range(String shortId, long fromMillis, long toMillis) {
+        return ByteStringRange.unbounded()
+                .startClosed(prefix(shortId) + fixedWidth(fromMillis))
+                .endOpen(prefix(shortId) + fixedWidth(toMillis));
+    }
+
+    // Every click of the link
+    public static ByteStringRange all(String shortId) {
+        return ByteStringRange.prefix(prefix(shortId));
+    }
+
+    public static long epochMillis(String key) {
+        int start = key.lastIndexOf(SEPARATOR, key.lastIndexOf(SEPARATOR) - 1) + 1;
+        return Long.parseLong(key, start, start + ZEROS.length(), 10);
+    }
+
+    private static String prefix(String shortId) {
+        return shortId + SEPARATOR;
+    }
+
+    private static String fixedWidth(long epochMillis) {
+        String digits = Long.toString(Math.max(0, Math.min(epochMillis, 9_999_999_999_999L)));
+        return ZEROS.substring(digits.length()) + digits;
+    }
+}
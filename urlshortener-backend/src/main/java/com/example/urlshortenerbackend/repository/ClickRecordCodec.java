@@ -0,0 +1,324 @@
+package com.example.urlshortenerbackend.repository;
+
+import com.example.urlshortenerbackend.model.ClickEvent;
+import com.example.urlshortenerbackend.model.UserAgentInfo;
+import com.google.protobuf.ByteString;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * Binary click record: one cell per click instead of one string cell per field.
+ *
+ * Version 1 layout, big-endian:
+ * <pre>
+ * version         1 byte, 1
+ * epoch millis    8 bytes
+ * ip              1 byte length: 0 (none), 4 or 16 raw address bytes follow;
+ *                 or 0xFF, then a 1-byte length and the text, when it is not an IP literal
+ * device type     1 byte code   \
+ * browser         1 byte code    | 0xFF instead of a code: a 1-byte length and the
+ * country         1 byte code    | UTF-8 value follow
+ * os              1 byte code   /
+ * flags           1 byte: bit 0 user agent hash follows, bit 1 referer hash follows,
+ *                 bit 2 browser major version follows
+ * hashes          8 bytes each, see {@link #valueHash}
+ * browser version 2 bytes, unsigned
+ * </pre>
+ * A typical click is 37 bytes. Records written before the browser version flag
+ * simply lack it, and readers that predate it ignore the flag and the trailing
+ * bytes. Codes index fixed dictionaries: the {@link UserAgentInfo} arrays, and
+ * "Unknown" plus the ISO 3166 codes below for countries, so every table may
+ * only ever be appended to. Full User-Agent and referer values are stored once
+ * per distinct value, in dictionary rows keyed by their hash.
+ */
+public final class ClickRecordCodec {
+
+    public static final int VERSION = 1;
+
+    // Coded fields, in record order
+    public static final int DEVICE_TYPE = 0, BROWSER = 1, COUNTRY = 2, OS = 3, FIELD_COUNT = 4;
+
+    private static final int INLINE = 0xFF;
+    private static final int MAX_INLINE_BYTES = 255;
+    private static final int FLAG_USER_AGENT = 1, FLAG_REFERER = 2, FLAG_BROWSER_VERSION = 4;
+    private static final int MAX_BROWSER_VERSION = 0xFFFF;
+    private static final String UNKNOWN = "Unknown";
+
+    // Country code n + 1 is the English name of the n-th ISO code here; append only
+    private static final String COUNTRY_CODES = "ADAEAFAGAIALAMAOAQARASATAUAWAXAZBABBBDBEBFBGBHBIBJBLBMBNBOBQBRBSBTBVBWBY"
+            + "BZCACCCDCFCGCHCICKCLCMCNCOCRCUCVCWCXCYCZDEDJDKDMDODZECEEEGEHERESETFIFJFKFMFOFRGAGBGDGEGFGGGHGIGLGMGNGP"
+            + "GQGRGSGTGUGWGYHKHMHNHRHTHUIDIEILIMINIOIQIRISITJEJMJOJPKEKGKHKIKMKNKPKRKWKYKZLALBLCLILKLRLSLTLULVLYMAMC"
+            + "MDMEMFMGMHMKMLMMMNMOMPMQMRMSMTMUMVMWMXMYMZNANCNENFNGNINLNONPNRNUNZOMPAPEPFPGPHPKPLPMPNPRPSPTPWPYQARERO"
+            + "RSRURWSASBSCSDSESGSHSISJSKSLSMSNSOSRSSSTSVSXSYSZTCTDTFTGTHTJTKTLTMTNTOTRTTTVTWTZUAUGUMUSUYUZVAVCVEVGVI"
+            + "VNVUWFWSYEYTZAZMZWXK";
+
+    private static final String[][] NAMES = new String[FIELD_COUNT][];
+    private static final ByteString[][] VALUES = new ByteString[FIELD_COUNT][];
+    private static final Map<String, Integer>[] CODES = newCodeMaps();
+
+    static {
+        String[] countries = new String[COUNTRY_CODES.length() / 2 + 1];
+        countries[0] = UNKNOWN;
+        for (int i = 1; i < countries.length; i++) {
+            // Same names as the GeoIP enrichment produces
+            countries[i] = new Locale.Builder().setRegion(COUNTRY_CODES.substring(2 * i - 2, 2 * i)).build().getDisplayCountry(Locale.ENGLISH);
+        }
+        NAMES[DEVICE_TYPE] = UserAgentInfo.DEVICE_TYPES;
+        NAMES[BROWSER] = UserAgentInfo.BROWSERS;
+        NAMES[COUNTRY] = countries;
+        NAMES[OS] = UserAgentInfo.OPERATING_SYSTEMS;
+
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            VALUES[field] = new ByteString[NAMES[field].length];
+            for (int code = 0; code < NAMES[field].length; code++) {
+                VALUES[field][code] = ByteString.copyFromUtf8(NAMES[field][code]);
+                CODES[field].putIfAbsent(NAMES[field][code], code);
+            }
+        }
+    }
+
+    private ClickRecordCodec() {
+    }
+
+    /**
+     * Encodes an enriched click.
+     *
+     * @param userAgentHash {@link #valueHash} of the stored User-Agent, 0 to leave it out
+     * @param refererHash   {@link #valueHash} of the stored referer, 0 to leave it out
+     */
+    public static ByteString encode(ClickEvent event, long userAgentHash, long refererHash) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(48);
+        out.write(VERSION);
+        writeLong(out, event.getTimestamp());
+
+        byte[] address = ipBytes(event.getIp());
+        if (address != null) {
+            out.write(address.length);
+            out.write(address, 0, address.length);
+        } else if (event.getIp() == null || event.getIp().isEmpty()) {
+            out.write(0);
+        } else {
+            writeInline(out, event.getIp());
+        }
+
+        writeField(out, DEVICE_TYPE, event.getDeviceType());
+        writeField(out, BROWSER, event.getBrowser());
+        writeField(out, COUNTRY, event.getCountry());
+        writeField(out, OS, event.getOs());
+
+        // Versions that do not fit are not real ones; they are left out like unknown ones
+        int browserVersion = event.getBrowserMajorVersion();
+        boolean hasBrowserVersion = browserVersion >= 0 && browserVersion <= MAX_BROWSER_VERSION;
+        out.write((userAgentHash != 0 ? FLAG_USER_AGENT : 0) | (refererHash != 0 ? FLAG_REFERER : 0)
+                | (hasBrowserVersion ? FLAG_BROWSER_VERSION : 0));
+        if (userAgentHash != 0) {
+            writeLong(out, userAgentHash);
+        }
+        if (refererHash != 0) {
+            writeLong(out, refererHash);
+        }
+        if (hasBrowserVersion) {
+            out.write(browserVersion >>> 8);
+            out.write(browserVersion);
+        }
+        return ByteString.copyFrom(out.toByteArray());
+    }
+
+    /**
+     * Decodes a record back into a click.
+     *
+     * @param dictionary Resolves User-Agent and referer hashes; may return null
+     * @return The click, or null if the record is not in a known version
+     */
+    public static ClickEvent decode(String shortId, ByteString record, LongFunction<String> dictionary) {
+        int offset = firstField(record);
+        if (offset < 0) {
+            return null;
+        }
+        String[] fields = new String[FIELD_COUNT];
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            fields[field] = fieldValue(record, field, offset).toStringUtf8();
+            offset = nextField(record, offset);
+        }
+
+        int flags = record.byteAt(offset++) & 0xFF;
+        String userAgent = null;
+        String referer = null;
+        if ((flags & FLAG_USER_AGENT) != 0) {
+            userAgent = dictionary.apply(readLong(record, offset));
+            offset += Long.BYTES;
+        }
+        if ((flags & FLAG_REFERER) != 0) {
+            referer = dictionary.apply(readLong(record, offset));
+            offset += Long.BYTES;
+        }
+        int browserVersion = -1;
+        if ((flags & FLAG_BROWSER_VERSION) != 0) {
+            browserVersion = ((record.byteAt(offset) & 0xFF) << 8) | (record.byteAt(offset + 1) & 0xFF);
+        }
+        return new ClickEvent(shortId, epochMillis(record), ipText(record), userAgent, referer)
+                .withEnrichment(fields[COUNTRY], fields[DEVICE_TYPE], fields[BROWSER], browserVersion, fields[OS]);
+    }
+
+    public static boolean isRecord(ByteString value) {
+        return value.size() > Long.BYTES + 1 && value.byteAt(0) == VERSION;
+    }
+
+    public static long epochMillis(ByteString record) {
+        return readLong(record, 1);
+    }
+
+    // Offset of the first coded field, -1 if the record is not in a known version
+    static int firstField(ByteString record) {
+        if (!isRecord(record)) {
+            return -1;
+        }
+        int length = record.byteAt(1 + Long.BYTES) & 0xFF;
+        int offset = 1 + Long.BYTES;
+        return length == INLINE ? offset + 2 + (record.byteAt(offset + 1) & 0xFF) : offset + 1 + length;
+    }
+
+    static int nextField(ByteString record, int offset) {
+        return (record.byteAt(offset) & 0xFF) == INLINE ? offset + 2 + (record.byteAt(offset + 1) & 0xFF) : offset + 1;
+    }
+
+    // Value of the coded field at offset; dictionary values are shared instances, so no copy is made for them
+    static ByteString fieldValue(ByteString record, int field, int offset) {
+        int code = record.byteAt(offset) & 0xFF;
+        if (code == INLINE) {
+            return record.substring(offset + 2, offset + 2 + (record.byteAt(offset + 1) & 0xFF));
+        }
+        return code < VALUES[field].length ? VALUES[field][code] : VALUES[field][0];
+    }
+
+    /**
+     * Content address of a User-Agent or referer: the first 8 bytes of its SHA-256,
+     * never 0, or 0 for a missing value.
+     */
+    public static long valueHash(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash != 0 ? hash : 1;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void writeField(ByteArrayOutputStream out, int field, String value) {
+        Integer code = value != null ? CODES[field].get(value) : null;
+        if (code != null) {
+            out.write(code);
+        } else {
+            writeInline(out, value != null ? value : "");
+        }
+    }
+
+    // Values longer than 255 bytes are cut; only IP text that is not an address can be that long
+    private static void writeInline(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_INLINE_BYTES);
+        out.write(INLINE);
+        out.write(length);
+        out.write(bytes, 0, length);
+    }
+
+    private static String ipText(ByteString record) {
+        int offset = 1 + Long.BYTES;
+        int length = record.byteAt(offset) & 0xFF;
+        if (length == 0) {
+            return null;
+        }
+        if (length == INLINE) {
+            return record.substring(offset + 2, offset + 2 + (record.byteAt(offset + 1) & 0xFF)).toStringUtf8();
+        }
+        try {
+            return InetAddress.getByAddress(record.substring(offset + 1, offset + 1 + length).toByteArray())
+                    .getHostAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    // Raw address of an IP literal, null for anything else; host names are never resolved
+    private static byte[] ipBytes(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return null;
+        }
+        if (ip.indexOf(':') < 0) {
+            return ipv4Bytes(ip);
+        }
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            boolean literalChar = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+                    || c == ':' || c == '.';
+            if (!literalChar) {
+                return null;
+            }
+        }
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static byte[] ipv4Bytes(String ip) {
+        byte[] address = new byte[4];
+        int octet = -1;
+        int index = 0;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return null;
+                }
+            } else if (c == '.' && octet >= 0 && index < 4) {
+                address[index++] = (byte) octet;
+                octet = -1;
+            } else {
+                return null;
+            }
+        }
+        return index == 4 ? address : null;
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static long readLong(ByteString bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            value = (value << 8) | (bytes.byteAt(i) & 0xFF);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Integer>[] newCodeMaps() {
+        Map<String, Integer>[] maps = new Map[FIELD_COUNT];
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            maps[field] = new HashMap<>();
+        }
+        return maps;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.urlshortenerbackend.repository;
+
+import com.google.cloud.bigtable.data.v2.models.Range.ByteStringRange;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row keys of pre-aggregated click counts, one row per link per UTC hour and
+ * per UTC day:
+ *
+ * <pre>
+ * rollup#&lt;shortId&gt;#h#yyyyMMddHH
+ * rollup#&lt;shortId&gt;#d#yyyyMMdd
+ * </pre>
+ *
+ * Both sort by time, so a window of hours or days is one row range. A window
+ * in a local timezone is read as whole UTC days plus the hours at either end;
+ * see {@link #covering}.
+ */
+public final class ClickRollupKeys {
+
+    private static final String PREFIX = "rollup#";
+
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHH").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private ClickRollupKeys() {
+    }
+
+    public static String hourKey(String shortId, long epochMillis) {
+        return hourPrefix(shortId) + HOUR_FORMAT.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    public static String dayKey(String shortId, long epochMillis) {
+        return dayPrefix(shortId) + DAY_FORMAT.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    // Hourly rows of the hours starting in [fromMillis, toMillis)
+    public static ByteStringRange hours(String shortId, long fromMillis, long toMillis) {
+        return ByteStringRange.unbounded()
+                .startClosed(hourKey(shortId, ceil(fromMillis, HOUR_MILLIS)))
+                .endOpen(hourKey(shortId, ceil(toMillis, HOUR_MILLIS)));
+    }
+
+    /**
+     * Fewest rows that add up to the clicks of [fromMillis, toMillis): daily rows for
+     * the whole UTC days inside the window, hourly rows for the rest. An hour cut by
+     * a bound that is not on the hour, as in half-hour timezones, counts in the window
+     * in which it starts.
+     */
+    public static List<ByteStringRange> covering(String shortId, long fromMillis, long toMillis) {
+        long from = ceil(fromMillis, HOUR_MILLIS);
+        long to = ceil(toMillis, HOUR_MILLIS);
+        long firstDay = ceil(from, DAY_MILLIS);
+        long lastDay = to - Math.floorMod(to, DAY_MILLIS);
+
+        List<ByteStringRange> ranges = new ArrayList<>(3);
+        if (firstDay >= lastDay) {
+            ranges.add(hours(shortId, from, to));
+            return ranges;
+        }
+        if (from < firstDay) {
+            ranges.add(hours(shortId, from, firstDay));
+        }
+        ranges.add(ByteStringRange.unbounded()
+                .startClosed(dayKey(shortId, firstDay))
+                .endOpen(dayKey(shortId, lastDay)));
+        if (lastDay < to) {
+            ranges.add(hours(shortId, lastDay, to));
+        }
+        return ranges;
+    }
+
+    // Every rollup row of the link
+    public static ByteStringRange all(String shortId) {
+        return ByteStringRange.prefix(PREFIX + shortId + "#");
+    }
+
+    // Start of the hour or day a rollup row counts
+    public static long startMillis(String key) {
+        int start = key.lastIndexOf('#') + 1;
+        boolean hourly = key.charAt(start - 2) == 'h';
+        int year = Integer.parseInt(key, start, start + 4, 10);
+        int month = Integer.parseInt(key, start + 4, start + 6, 10);
+        int day = Integer.parseInt(key, start + 6, start + 8, 10);
+        int hour = hourly ? Integer.parseInt(key, start + 8, start + 10, 10) : 0;
+        return LocalDateTime.of(year, month, day, hour, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static String hourPrefix(String shortId) {
+        return PREFIX + shortId + "#h#";
+    }
+
+    private static String dayPrefix(String shortId) {
+        return PREFIX + shortId + "#d#";
+    }
+
+    private static long ceil(long millis, long unit) {
+        long remainder = Math.floorMod(millis, unit);
+        return remainder == 0 ? millis : millis - remainder + unit;
+    }
+}
@@ -0,0 +1,396 @@
+package com.example.urlshortenerbackend.repository;
+
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.cloud.bigtable.data.v2.models.RowCell;
+import com.google.protobuf.ByteString;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts the click events of one link per hour, by device type, browser and
+ * country, as their rows stream in from Bigtable.
+ *
+ * Cells are decoded straight from their {@link ByteString}s: the click time comes
+ * from the fixed-width row key (or, for legacy rows, is parsed from the timestamp
+ * cell's bytes), dimension values are read from the binary click record (see
+ * {@link ClickRecordCodec}) or from the string cells of rows written before it,
+ * and each value is looked up in a dictionary that maps it to a small integer
+ * code. Counts live in a primitive open-addressing table keyed by (hour, code).
+ * Nothing is allocated per click, so memory depends on the number of distinct
+ * hours and values seen, not on the number of clicks, and an instance can be
+ * {@link #reset} and reused for the next link with its tables and dictionary
+ * kept.
+ *
+ * Not thread-safe.
+ */
+public final class ClickStreamAggregator {
+
+    public enum Dimension {
+        TOTAL,
+        DEVICE,
+        BROWSER,
+        COUNTRY
+    }
+
+    // Receives counters in bucket order; within a bucket the total comes first
+    @FunctionalInterface
+    public interface CounterSink {
+        void accept(long bucketStartMillis, Dimension dimension, String value, long count);
+    }
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final int CODE_BITS = 16;
+    private static final int MAX_CODES = 1 << CODE_BITS;
+    private static final int TOTAL_CODE = 0;
+    private static final long EMPTY = -1L;
+
+    private static final ByteString TIMESTAMP = ByteString.copyFromUtf8("timestamp");
+    private static final ByteString DEVICE_TYPE = ByteString.copyFromUtf8("device_type");
+    private static final ByteString BROWSER = ByteString.copyFromUtf8("browser");
+    private static final ByteString COUNTRY = ByteString.copyFromUtf8("country");
+    private static final ByteString RECORD = ByteString.copyFromUtf8("record");
+
+    // Dimension of each coded field of a click record; the OS is not counted
+    private static final Dimension[] RECORD_DIMENSIONS = new Dimension[ClickRecordCodec.FIELD_COUNT];
+
+    static {
+        RECORD_DIMENSIONS[ClickRecordCodec.DEVICE_TYPE] = Dimension.DEVICE;
+        RECORD_DIMENSIONS[ClickRecordCodec.BROWSER] = Dimension.BROWSER;
+        RECORD_DIMENSIONS[ClickRecordCodec.COUNTRY] = Dimension.COUNTRY;
+    }
+
+    // Legacy timestamps without an offset were written as CST wall-clock time
+    private static final ZoneRules LEGACY_ZONE_RULES = ZoneId.of("America/Chicago").getRules();
+
+    // Counters: key = epoch hour << CODE_BITS | code
+    private long[] keys = new long[1024];
+    private long[] counts = new long[1024];
+    private int size;
+
+    // Dictionary: code -> (dimension, value); code 0 is the total
+    private ByteString[] values = new ByteString[64];
+    private Dimension[] dimensions = new Dimension[64];
+    private String[] decoded = new String[64];
+    private int[] codeTable = new int[128];     // open addressing over value hash, 0 = empty
+    private int codeCount = 1;
+
+    private int idLength;
+    private long fromMillis;
+    private long toMillis;
+
+    public ClickStreamAggregator() {
+        Arrays.fill(keys, EMPTY);
+        dimensions[TOTAL_CODE] = Dimension.TOTAL;
+    }
+
+    /**
+     * Starts counting the clicks of a link in [fromMillis, toMillis); rows of clicks
+     * outside the window are skipped.
+     */
+    public ClickStreamAggregator reset(String shortId, long fromMillis, long toMillis) {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        this.idLength = shortId.getBytes(StandardCharsets.UTF_8).length;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        return this;
+    }
+
+    // Adds one click row, projected to its record cell or to its timestamp, device_type, browser and country cells
+    public void add(Row row) {
+        ByteString key = row.getKey();
+        List<RowCell> cells = row.getCells();
+
+        long millis;
+        if (key.size() > idLength + 13 && key.byteAt(idLength) == '#') {
+            millis = parseDigits(key, idLength + 1, 13);
+        } else {
+            millis = -1;
+            for (int i = 0; i < cells.size(); i++) {
+                ByteString qualifier = cells.get(i).getQualifier();
+                if (qualifier.equals(TIMESTAMP)) {
+                    millis = parseTimestamp(cells.get(i).getValue());
+                    break;
+                } else if (qualifier.equals(RECORD) && ClickRecordCodec.isRecord(cells.get(i).getValue())) {
+                    millis = ClickRecordCodec.epochMillis(cells.get(i).getValue());
+                    break;
+                }
+            }
+        }
+        if (millis < fromMillis || millis >= toMillis) {
+            return;
+        }
+
+        long hour = Math.floorDiv(millis, HOUR_MILLIS) << CODE_BITS;
+        increment(hour | TOTAL_CODE);
+        for (int i = 0; i < cells.size(); i++) {
+            RowCell cell = cells.get(i);
+            ByteString qualifier = cell.getQualifier();
+            Dimension dimension;
+            if (qualifier.equals(DEVICE_TYPE)) {
+                dimension = Dimension.DEVICE;
+            } else if (qualifier.equals(BROWSER)) {
+                dimension = Dimension.BROWSER;
+            } else if (qualifier.equals(COUNTRY)) {
+                dimension = Dimension.COUNTRY;
+            } else if (qualifier.equals(RECORD)) {
+                addRecord(hour, cell.getValue());
+                continue;
+            } else {
+                continue;
+            }
+            int code = code(dimension, cell.getValue());
+            if (code > 0) {
+                increment(hour | code);
+            }
+        }
+    }
+
+    private void addRecord(long hour, ByteString record) {
+        int offset = ClickRecordCodec.firstField(record);
+        for (int field = 0; field < ClickRecordCodec.FIELD_COUNT && offset >= 0; field++) {
+            Dimension dimension = RECORD_DIMENSIONS[field];
+            if (dimension != null) {
+                int code = code(dimension, ClickRecordCodec.fieldValue(record, field, offset));
+                if (code > 0) {
+                    increment(hour | code);
+                }
+            }
+            offset = ClickRecordCodec.nextField(record, offset);
+        }
+    }
+
+    // Number of (hour, value) counters held
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reports the counters summed per bucket of bucketMillis, a whole number of hours
+     * such as an hour or a UTC day.
+     */
+    public void forEach(long bucketMillis, CounterSink sink) {
+        long hoursPerBucket = bucketMillis / HOUR_MILLIS;
+        long[] sorted = new long[size];
+        int n = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                sorted[n++] = key;
+            }
+        }
+        Arrays.sort(sorted);
+
+        long[] bucketCounts = new long[codeCount];
+        int i = 0;
+        while (i < n) {
+            long bucket = Math.floorDiv(sorted[i] >> CODE_BITS, hoursPerBucket);
+            for (; i < n && Math.floorDiv(sorted[i] >> CODE_BITS, hoursPerBucket) == bucket; i++) {
+                bucketCounts[(int) (sorted[i] & (MAX_CODES - 1))] += get(sorted[i]);
+            }
+            long bucketStart = bucket * bucketMillis;
+            for (int code = 0; code < codeCount; code++) {
+                if (bucketCounts[code] != 0) {
+                    sink.accept(bucketStart, dimensions[code], decoded[code], bucketCounts[code]);
+                    bucketCounts[code] = 0;
+                }
+            }
+        }
+    }
+
+    private void increment(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            counts[slot] = 1;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return;
+        }
+        counts[slot]++;
+    }
+
+    private long get(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return counts[slot];
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    // Dictionary code of a value, assigned on first sight; 0 once the dictionary is full
+    private int code(Dimension dimension, ByteString value) {
+        int hash = value.hashCode() * 31 + dimension.ordinal();
+        int mask = codeTable.length - 1;
+        int slot = hash & mask;
+        while (codeTable[slot] != 0) {
+            int code = codeTable[slot];
+            if (dimensions[code] == dimension && values[code].equals(value)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (codeCount == MAX_CODES) {
+            return 0;
+        }
+
+        int code = codeCount++;
+        if (code == values.length) {
+            values = Arrays.copyOf(values, code * 2);
+            dimensions = Arrays.copyOf(dimensions, code * 2);
+            decoded = Arrays.copyOf(decoded, code * 2);
+        }
+        // Copy, so the dictionary does not pin the response buffer the value was read from
+        values[code] = ByteString.copyFrom(value.toByteArray());
+        dimensions[code] = dimension;
+        decoded[code] = value.toStringUtf8();
+        codeTable[slot] = code;
+        if (codeCount * 2 > codeTable.length) {
+            rehashCodes();
+        }
+        return code;
+    }
+
+    private void rehashCodes() {
+        codeTable = new int[codeTable.length * 2];
+        int mask = codeTable.length - 1;
+        for (int code = 1; code < codeCount; code++) {
+            int slot = (values[code].hashCode() * 31 + dimensions[code].ordinal()) & mask;
+            while (codeTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            codeTable[slot] = code;
+        }
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Epoch millis of a stored timestamp, -1 if it cannot be read. Accepts what has
+     * been written over time: yyyy-MM-ddTHH:mm[:ss[.fraction]] followed by Z, an
+     * offset, or nothing for CST wall-clock time, then an optional [zone] that the
+     * offset already accounts for.
+     */
+    static long parseTimestamp(ByteString value) {
+        int length = value.size();
+        if (length < 16 || value.byteAt(4) != '-' || value.byteAt(7) != '-' || value.byteAt(10) != 'T'
+                || value.byteAt(13) != ':') {
+            return -1;
+        }
+        long year = parseDigits(value, 0, 4);
+        long month = parseDigits(value, 5, 2);
+        long day = parseDigits(value, 8, 2);
+        long hour = parseDigits(value, 11, 2);
+        long minute = parseDigits(value, 14, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59) {
+            return -1;
+        }
+
+        int pos = 16;
+        long second = 0;
+        long millis = 0;
+        if (pos < length && value.byteAt(pos) == ':') {
+            second = parseDigits(value, pos + 1, 2);
+            if (second < 0) {
+                return -1;
+            }
+            pos += 3;
+            if (pos < length && value.byteAt(pos) == '.') {
+                pos++;
+                long scale = 100;
+                while (pos < length && isDigit(value.byteAt(pos))) {
+                    millis += (value.byteAt(pos) - '0') * scale;
+                    scale /= 10;
+                    pos++;
+                }
+            }
+        }
+
+        long localSeconds = daysFromCivil(year, month, day) * 86_400 + hour * 3_600 + minute * 60 + second;
+        long offsetSeconds;
+        if (pos == length || value.byteAt(pos) == '[') {
+            // Rare legacy rows; the zone rules lookup is the one place that allocates
+            offsetSeconds = LEGACY_ZONE_RULES.getOffset(
+                    LocalDateTime.ofEpochSecond(localSeconds, 0, ZoneOffset.UTC)).getTotalSeconds();
+        } else if (value.byteAt(pos) == 'Z') {
+            offsetSeconds = 0;
+        } else if ((value.byteAt(pos) == '+' || value.byteAt(pos) == '-') && pos + 6 <= length
+                && value.byteAt(pos + 3) == ':') {
+            long offsetHours = parseDigits(value, pos + 1, 2);
+            long offsetMinutes = parseDigits(value, pos + 4, 2);
+            if (offsetHours < 0 || offsetMinutes < 0) {
+                return -1;
+            }
+            offsetSeconds = (offsetHours * 3_600 + offsetMinutes * 60) * (value.byteAt(pos) == '-' ? -1 : 1);
+        } else {
+            return -1;
+        }
+        return (localSeconds - offsetSeconds) * 1000 + millis;
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date
+    private static long daysFromCivil(long year, long month, long day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    // Non-negative decimal of exactly count digits at offset, -1 if any byte is not a digit
+    private static long parseDigits(ByteString bytes, int offset, int count) {
+        if (offset + count > bytes.size()) {
+            return -1;
+        }
+        long result = 0;
+        for (int i = offset; i < offset + count; i++) {
+            byte b = bytes.byteAt(i);
+            if (!isDigit(b)) {
+                return -1;
+            }
+            result = result * 10 + (b - '0');
+        }
+        return result;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.model.BulkShortenResult;
+import com.example.urlshortenerbackend.model.UrlEntity;
+import com.example.urlshortenerbackend.repository.BigtableRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Creates many short links at once.
+ *
+ * Input is split into chunks that run in parallel on a bounded pool. Per chunk,
+ * IDs come from the {@link ShortIdAllocator}, collisions with existing links
+ * (custom aliases, legacy IDs) are found with one multi-key read, and the rows
+ * are written with one bulk mutation for the indexes and concurrent conditional
+ * writes for the links, so the latency depends on the number of chunks, not the
+ * number of URLs. A link claimed between the read and the write keeps its row;
+ * the item is retried under a fresh ID.
+ */
+@Service
+public class BulkShortenService {
+
+    // Re-allocation rounds for IDs that met an existing link; collisions are rare
+    private static final int MAX_COLLISION_ROUNDS = 5;
+
+    private final BigtableRepository bigtableRepository;
+    private final ShortIdAllocator shortIdAllocator;
+    private final ShortIdFilter shortIdFilter;
+    private final int chunkSize;
+
+    private final ExecutorService executor;
+
+    public BulkShortenService(BigtableRepository bigtableRepository,
+                              ShortIdAllocator shortIdAllocator,
+                              ShortIdFilter shortIdFilter,
+                              WorkerThreads workerThreads,
+                              @Value("${app.bulk.chunk-size:500}") int chunkSize,
+                              @Value("${app.bulk.parallelism:4}") int parallelism) {
+        this.bigtableRepository = bigtableRepository;
+        this.shortIdAllocator = shortIdAllocator;
+        this.shortIdFilter = shortIdFilter;
+        this.chunkSize = chunkSize;
+
+        this.executor = Executors.newFixedThreadPool(parallelism, workerThreads.factory("bulk-shorten-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Shortens every item and returns one result per item, in input order.
+     * Items are maps with "url" and optional "tag" and "isPrivate" entries.
+     */
+    public List<BulkShortenResult> shorten(List<Map<String, String>> items, String ownerId) {
+        BulkShortenResult[] results = new BulkShortenResult[items.size()];
+
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int start = 0; start < items.size(); start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, items.size());
+            chunks.add(executor.submit(() -> shortenChunk(items, from, to, ownerId, results)));
+        }
+
+        for (int i = 0; i < chunks.size(); i++) {
+            try {
+                chunks.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                chunks.forEach(chunk -> chunk.cancel(true));
+                break;
+            } catch (ExecutionException e) {
+                int from = i * chunkSize;
+                int to = Math.min(from + chunkSize, items.size());
+                failRemaining(items, from, to, results, e.getCause().getMessage());
+            }
+        }
+
+        // Anything left unset was cancelled
+        failRemaining(items, 0, items.size(), results, "Not processed");
+        return List.of(results);
+    }
+
+    /**
+     * Shortens items [from, to) on the calling thread, writing each outcome to
+     * results at the item's index.
+     */
+    void shortenChunk(List<Map<String, String>> items, int from, int to, String ownerId,
+                      BulkShortenResult[] results) {
+        long createdAt = Instant.now().getEpochSecond();
+        String lastAccess = Instant.now().toString();
+
+        // Chunk-local position -> input index, for the items that are valid
+        List<Integer> indexes = new ArrayList<>();
+        List<UrlEntity> entities = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Map<String, String> item = items.get(i);
+            String originalUrl = item != null ? item.get("url") : null;
+            if (originalUrl == null || originalUrl.isEmpty()) {
+                results[i] = BulkShortenResult.failure(originalUrl, "URL is required");
+                continue;
+            }
+
+            String tag = item.getOrDefault("tag", "None");
+            UrlEntity urlEntity = new UrlEntity();
+            urlEntity.setId(shortIdAllocator.nextId());
+            urlEntity.setOriginalUrl(originalUrl);
+            urlEntity.setCreatedAt(createdAt);
+            urlEntity.setClickCount(0);
+            urlEntity.setLastAccess(lastAccess);
+            urlEntity.setTag(tag != null && !tag.isEmpty() ? tag : "None");
+            urlEntity.setOwnerId(ownerId);
+            urlEntity.setPrivate(Boolean.parseBoolean(item.getOrDefault("isPrivate", "false")));
+
+            indexes.add(i);
+            entities.add(urlEntity);
+        }
+
+        resolveCollisions(entities);
+
+        Map<Integer, String> failed = save(entities);
+        for (int k = 0; k < entities.size(); k++) {
+            UrlEntity urlEntity = entities.get(k);
+            int index = indexes.get(k);
+            String error = failed.get(k);
+            if (error == null) {
+                shortIdFilter.add(urlEntity.getId());
+                results[index] = BulkShortenResult.success(urlEntity.getOriginalUrl(), urlEntity.getId());
+            } else {
+                results[index] = BulkShortenResult.failure(urlEntity.getOriginalUrl(), error);
+            }
+        }
+    }
+
+    // Saves the entities, giving a fresh ID to those whose ID was claimed since it was checked
+    private Map<Integer, String> save(List<UrlEntity> entities) {
+        Map<Integer, String> failed = bigtableRepository.saveUrls(entities);
+        for (int round = 0; round < MAX_COLLISION_ROUNDS; round++) {
+            List<Integer> taken = new ArrayList<>();
+            failed.forEach((position, error) -> {
+                if (BigtableRepository.ID_TAKEN.equals(error)) {
+                    taken.add(position);
+                }
+            });
+            if (taken.isEmpty()) {
+                break;
+            }
+
+            List<UrlEntity> retries = new ArrayList<>();
+            for (int position : taken) {
+                UrlEntity urlEntity = entities.get(position);
+                urlEntity.setId(shortIdAllocator.nextId());
+                retries.add(urlEntity);
+                failed.remove(position);
+            }
+            bigtableRepository.saveUrls(retries)
+                    .forEach((retry, error) -> failed.put(taken.get(retry), error));
+        }
+        return failed;
+    }
+
+    // Gives a fresh ID to every entity whose ID is already taken, one multi-key read per round
+    private void resolveCollisions(List<UrlEntity> entities) {
+        List<UrlEntity> unchecked = entities;
+        for (int round = 0; round < MAX_COLLISION_ROUNDS && !unchecked.isEmpty(); round++) {
+            Map<String, UrlEntity> byId = new HashMap<>();
+            for (UrlEntity urlEntity : unchecked) {
+                byId.put(urlEntity.getId(), urlEntity);
+            }
+
+            Set<String> existing = bigtableRepository.findExistingShortIds(byId.keySet());
+            unchecked = new ArrayList<>();
+            for (String id : existing) {
+                UrlEntity urlEntity = byId.get(id);
+                urlEntity.setId(shortIdAllocator.nextId());
+                unchecked.add(urlEntity);
+            }
+        }
+        if (!unchecked.isEmpty()) {
+            throw new IllegalStateException("Could not allocate free short IDs");
+        }
+    }
+
+    private static void failRemaining(List<Map<String, String>> items, int from, int to,
+                                      BulkShortenResult[] results, String error) {
+        for (int i = from; i < to; i++) {
+            if (results[i] == null) {
+                Map<String, String> item = items.get(i);
+                results[i] = BulkShortenResult.failure(item != null ? item.get("url") : null, error);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.model.ClickRollup;
+import com.example.urlshortenerbackend.repository.ClickStreamAggregator;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Running analytics of one link over consecutive periods: the 24 hours of a day,
+ * or 12 weeks or months. Holds the clicks per period and the device, browser
+ * and country distributions, plus the watermark up to which clicks are counted,
+ * so that a cached result can be brought up to date by adding only newer clicks.
+ *
+ * Clicks are attributed by the UTC hour they fall in: an hour counts in the
+ * period in which it starts, both for rollups and for raw clicks. Scans
+ * therefore cover whole hours, from the first hour starting in the range to the
+ * first hour starting after it; in whole-hour timezones that is the range itself.
+ *
+ * Not thread-safe; {@link ClickAnalyticsService} holds {@link #lock()} while it
+ * reads or updates the instance.
+ */
+final class ClickAnalytics {
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private final String timeRange;
+    private final String clicksKey;     // clicks_per_hour, clicks_per_week or clicks_per_month
+    private final String date;          // daily only
+    private final ZoneId zone;
+    private final String timezoneLabel;
+    private final String[] labels;
+    private final long[] bounds;        // period starts, then the end of the last period; epoch millis
+    private final long[] clicks;
+
+    private final Map<String, Long> devices = new HashMap<>();
+    private final Map<String, Long> browsers = new HashMap<>();
+    private final Map<String, Long> countries = new HashMap<>();
+
+    private long watermark;             // clicks before this are counted, epoch millis, on the hour at first
+
+    // Not a monitor: catching up scans Bigtable and would pin a virtual thread to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private ClickAnalytics(String timeRange, String clicksKey, String date, ZoneId zone, String timezoneLabel,
+                           String[] labels, long[] bounds) {
+        this.timeRange = timeRange;
+        this.clicksKey = clicksKey;
+        this.date = date;
+        this.zone = zone;
+        this.timezoneLabel = timezoneLabel;
+        this.labels = labels;
+        this.bounds = bounds;
+        this.clicks = new long[labels.length];
+        this.watermark = ceilHour(bounds[0]);
+
+        // Categories the dashboard always shows
+        for (String device : List.of("Desktop", "Mobile", "Tablet")) {
+            devices.put(device, 0L);
+        }
+        for (String browser : List.of("Chrome", "Firefox", "Safari", "Edge", "Internet Explorer", "Other")) {
+            browsers.put(browser, 0L);
+        }
+        for (String country : List.of("United States", "China", "India", "United Kingdom", "Germany", "Unknown")) {
+            countries.put(country, 0L);
+        }
+    }
+
+    // Clicks per local hour of one day; the repeated hour of a DST change adds up in one slot
+    static ClickAnalytics daily(String date, ZoneId zone, String timezoneLabel, long startMillis, long endMillis) {
+        String[] hours = new String[24];
+        for (int i = 0; i < 24; i++) {
+            hours[i] = String.valueOf(i);
+        }
+        return new ClickAnalytics("daily", "clicks_per_hour", date, zone, timezoneLabel, hours,
+                new long[]{startMillis, endMillis});
+    }
+
+    /**
+     * Clicks per consecutive period.
+     *
+     * @param clicksKey Response key of the clicks per period
+     * @param bounds    Start of each period, then the end of the last one
+     */
+    static ClickAnalytics periods(String timeRange, String clicksKey, ZoneId zone, String timezoneLabel,
+                                  String[] labels, long[] bounds) {
+        return new ClickAnalytics(timeRange, clicksKey, null, zone, timezoneLabel, labels, bounds);
+    }
+
+    boolean isDaily() {
+        return date != null;
+    }
+
+    // First hour to scan
+    long scanStart() {
+        return ceilHour(bounds[0]);
+    }
+
+    // End of the last hour to scan
+    long scanEnd() {
+        return ceilHour(bounds[bounds.length - 1]);
+    }
+
+    long periodStart(int period) {
+        return bounds[period];
+    }
+
+    long periodEnd(int period) {
+        return bounds[period + 1];
+    }
+
+    int periodCount() {
+        return isDaily() ? 1 : labels.length;
+    }
+
+    ReentrantLock lock() {
+        return lock;
+    }
+
+    long watermark() {
+        return watermark;
+    }
+
+    void advanceWatermark(long millis) {
+        watermark = millis;
+    }
+
+    // Every click of the range is counted; nothing can change the result any more
+    boolean isFrozen() {
+        return watermark >= scanEnd();
+    }
+
+    void add(ClickRollup rollup) {
+        int period = periodOf(rollup.getStartMillis());
+        clicks[period] += rollup.getTotal();
+        rollup.getDevices().forEach(this::addDevice);
+        rollup.getBrowsers().forEach(this::addBrowser);
+        rollup.getCountries().forEach(this::addCountry);
+    }
+
+    // Hourly counters of raw clicks, as reported by ClickStreamAggregator.forEach
+    void add(long hourStartMillis, ClickStreamAggregator.Dimension dimension, String value, long count) {
+        switch (dimension) {
+            case TOTAL:
+                clicks[periodOf(hourStartMillis)] += count;
+                break;
+            case DEVICE:
+                addDevice(value, count);
+                break;
+            case BROWSER:
+                addBrowser(value, count);
+                break;
+            case COUNTRY:
+                addCountry(value, count);
+                break;
+        }
+    }
+
+    private void addDevice(String device, long count) {
+        devices.merge(device, count, Long::sum);
+    }
+
+    // Any browser outside the predefined list counts as "Other"
+    private void addBrowser(String browser, long count) {
+        browsers.merge(browsers.containsKey(browser) ? browser : "Other", count, Long::sum);
+    }
+
+    private void addCountry(String country, long count) {
+        countries.merge(country.isEmpty() ? "Unknown" : country, count, Long::sum);
+    }
+
+    private int periodOf(long hourStartMillis) {
+        if (isDaily()) {
+            return Instant.ofEpochMilli(hourStartMillis).atZone(zone).getHour();
+        }
+        int period = Arrays.binarySearch(bounds, hourStartMillis);
+        return period >= 0 ? period : -period - 2;
+    }
+
+    static long ceilHour(long millis) {
+        long remainder = Math.floorMod(millis, HOUR_MILLIS);
+        return remainder == 0 ? millis : millis - remainder + HOUR_MILLIS;
+    }
+
+    // A copy in the response format; the cached instance keeps changing
+    Map<String, Object> toResponse() {
+        Map<String, Object> analyticsData = new HashMap<>();
+        long total = 0;
+        if (isDaily()) {
+            Map<Integer, Long> clicksPerHour = new HashMap<>();
+            for (int i = 0; i < clicks.length; i++) {
+                clicksPerHour.put(i, clicks[i]);
+                total += clicks[i];
+            }
+            analyticsData.put("date", date);
+            analyticsData.put(clicksKey, clicksPerHour);
+        } else {
+            Map<String, Long> clicksPerPeriod = new LinkedHashMap<>();
+            for (int i = 0; i < clicks.length; i++) {
+                clicksPerPeriod.put(labels[i], clicks[i]);
+                total += clicks[i];
+            }
+            analyticsData.put("time_range", timeRange);
+            analyticsData.put(clicksKey, clicksPerPeriod);
+        }
+        analyticsData.put("timezone", timezoneLabel);
+        analyticsData.put("device_distribution", new HashMap<>(devices));
+        analyticsData.put("browser_distribution", new HashMap<>(browsers));
+        analyticsData.put("country_distribution", new HashMap<>(countries));
+        analyticsData.put("total_clicks", total);
+        return analyticsData;
+    }
+}
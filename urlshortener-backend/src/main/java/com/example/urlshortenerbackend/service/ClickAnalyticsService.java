@@ -0,0 +1,215 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.repository.BigtableRepository;
+import com.example.urlshortenerbackend.repository.ClickRollupKeys;
+import com.example.urlshortenerbackend.repository.ClickStreamAggregator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.cloud.bigtable.data.v2.models.Range.ByteStringRange;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Click analytics of a link by day, week or month, with incremental caching.
+ *
+ * A result is first computed from the link's click rollups up to the last whole
+ * hour, plus the raw clicks since then, and cached per (link, time range,
+ * period, timezone) together with its watermark: the time up to which clicks
+ * are counted. A repeat request only scans the raw clicks after the watermark
+ * and adds them, so a dashboard reload reads a few seconds' worth of clicks.
+ * Once the watermark passes the end of the range the result is final and is
+ * served from the cache without touching Bigtable.
+ *
+ * Clicks newer than the settle time are left for the next request, so that
+ * clicks still on their way through the ingestion pipeline are not skipped.
+ * A click that takes longer than that to be stored (a queue backlog, Bigtable
+ * retries) lands behind the watermark and is missing from the cached result,
+ * but not from the rollups: entries are recomputed from the rollups at most
+ * expire-after-write after they were first computed, which bounds the loss.
+ *
+ * Deleting a link drops its entries here. Other instances keep theirs until
+ * expire-after-write, which is why it must not exceed the purge delay: a link
+ * can only be created again under the same ID after the purge.
+ */
+@Service
+public class ClickAnalyticsService {
+
+    private static final ZoneId CST_ZONE = ZoneId.of("America/Chicago");
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private final BigtableRepository bigtableRepository;
+    private final long settleMillis;
+    private final Cache<CacheKey, ClickAnalytics> cache;
+
+    private final ThreadLocal<ClickStreamAggregator> aggregators = ThreadLocal.withInitial(ClickStreamAggregator::new);
+
+    public ClickAnalyticsService(BigtableRepository bigtableRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.analytics.cache.maximum-size:10000}") long maximumSize,
+                                 @Value("${app.analytics.cache.expire-after-access-minutes:60}") long expireAfterAccessMinutes,
+                                 @Value("${app.analytics.cache.expire-after-write-minutes:5}") long expireAfterWriteMinutes,
+                                 @Value("${app.analytics.settle-millis:10000}") long settleMillis) {
+        this.bigtableRepository = bigtableRepository;
+        this.settleMillis = settleMillis;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(Duration.ofMinutes(expireAfterAccessMinutes))
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .recordStats()
+                .build();
+
+        // Exposes hit/miss/eviction counts under cache.* with cache=click_analytics
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "click_analytics");
+    }
+
+    /**
+     * Gets analytics data for a short URL based on specified time range.
+     *
+     * @param shortId The ID of the shortened URL
+     * @param dateStr Date in ISO format (yyyy-MM-dd) for daily analytics. If null, returns data for the current day.
+     * @param timeRange The time range for analytics: "daily", "weekly", or "monthly"
+     * @param zone Timezone that days, weeks and months are counted in
+     * @return Map containing analytics data organized by the specified time range
+     */
+    public Map<String, Object> getAnalytics(String shortId, String dateStr, String timeRange, ZoneId zone) {
+        // Default to daily if timeRange is not specified
+        if (timeRange == null || timeRange.isEmpty()) {
+            timeRange = "daily";
+        }
+
+        LocalDate today = LocalDate.now(zone);
+        ClickAnalytics empty;
+        switch (timeRange.toLowerCase()) {
+            case "weekly":
+                // Past 12 weeks (including current week), labelled by their Sunday
+                empty = periods("weekly", "clicks_per_week", zone,
+                        today.minusWeeks(11).with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY)),
+                        start -> start.plusWeeks(1), LocalDate::toString);
+                break;
+            case "monthly":
+                // Past 12 months (including current month), labelled yyyy-MM
+                empty = periods("monthly", "clicks_per_month", zone,
+                        YearMonth.from(today).minusMonths(11).atDay(1),
+                        start -> start.plusMonths(1), start -> YearMonth.from(start).toString());
+                break;
+            case "daily":
+            default:
+                LocalDate targetDate = today;
+                if (dateStr != null && !dateStr.isEmpty()) {
+                    try {
+                        targetDate = LocalDate.parse(dateStr);
+                    } catch (DateTimeParseException e) {
+                        // If date format is invalid, default to the current date
+                    }
+                }
+                empty = ClickAnalytics.daily(targetDate.toString(), zone, timezoneLabel(zone),
+                        targetDate.atStartOfDay(zone).toInstant().toEpochMilli(),
+                        targetDate.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+                break;
+        }
+
+        // The first period identifies the range: a new week or month starts a new entry
+        CacheKey key = new CacheKey(shortId, timeRange.toLowerCase(), empty.periodStart(0), zone);
+        ClickAnalytics analytics = cache.getIfPresent(key);
+        if (analytics == null) {
+            // Computed outside the cache's locks; two concurrent first requests both compute, one is kept
+            analytics = cache.asMap().merge(key, initialize(shortId, empty), (existing, computed) -> existing);
+        }
+
+        analytics.lock().lock();
+        try {
+            if (!analytics.isFrozen()) {
+                catchUp(shortId, analytics);
+            }
+            return analytics.toResponse();
+        } finally {
+            analytics.lock().unlock();
+        }
+    }
+
+    public Map<String, Object> getAnalytics(String shortId, String dateStr, String timeRange) {
+        return getAnalytics(shortId, dateStr, timeRange, CST_ZONE);
+    }
+
+    /**
+     * Drops every cached result of a link, for all time ranges and timezones.
+     */
+    public void invalidate(String shortId) {
+        cache.asMap().keySet().removeIf(key -> key.shortId().equals(shortId));
+    }
+
+    // Counts whole hours from rollups, up to the last hour that is complete and settled
+    private ClickAnalytics initialize(String shortId, ClickAnalytics analytics) {
+        long settled = System.currentTimeMillis() - settleMillis;
+        long rollupEnd = Math.max(analytics.scanStart(),
+                Math.min(settled - Math.floorMod(settled, HOUR_MILLIS), analytics.scanEnd()));
+
+        List<ByteStringRange> ranges = new ArrayList<>();
+        for (int i = 0; i < analytics.periodCount(); i++) {
+            long from = analytics.periodStart(i);
+            long to = Math.min(analytics.periodEnd(i), rollupEnd);
+            if (ClickAnalytics.ceilHour(from) >= to) {
+                break;
+            }
+            // Daily results count per hour, so they cannot use daily rollups
+            if (analytics.isDaily()) {
+                ranges.add(ClickRollupKeys.hours(shortId, from, to));
+            } else {
+                ranges.addAll(ClickRollupKeys.covering(shortId, from, to));
+            }
+        }
+        if (!ranges.isEmpty()) {
+            bigtableRepository.getClickRollups(shortId, ranges).forEach(analytics::add);
+        }
+        analytics.advanceWatermark(rollupEnd);
+        return analytics;
+    }
+
+    // Adds the raw clicks between the watermark and the settle time
+    private void catchUp(String shortId, ClickAnalytics analytics) {
+        long to = Math.min(System.currentTimeMillis() - settleMillis, analytics.scanEnd());
+        if (to <= analytics.watermark()) {
+            return;
+        }
+        ClickStreamAggregator clicks = bigtableRepository.aggregateClicks(shortId, analytics.watermark(), to,
+                aggregators.get());
+        clicks.forEach(HOUR_MILLIS, analytics::add);
+        analytics.advanceWatermark(to);
+    }
+
+    // 12 consecutive periods from the first, e.g. weeks or months
+    private static ClickAnalytics periods(String timeRange, String clicksKey, ZoneId zone, LocalDate first,
+                                          Function<LocalDate, LocalDate> next, Function<LocalDate, String> label) {
+        String[] labels = new String[12];
+        long[] bounds = new long[13];
+        LocalDate start = first;
+        for (int i = 0; i < 12; i++) {
+            labels[i] = label.apply(start);
+            bounds[i] = start.atStartOfDay(zone).toInstant().toEpochMilli();
+            start = next.apply(start);
+        }
+        bounds[12] = start.atStartOfDay(zone).toInstant().toEpochMilli();
+        return ClickAnalytics.periods(timeRange, clicksKey, zone, timezoneLabel(zone), labels, bounds);
+    }
+
+    private static String timezoneLabel(ZoneId zone) {
+        return zone.equals(CST_ZONE) ? "CST (America/Chicago)" : zone.getId();
+    }
+
+    private record CacheKey(String shortId, String timeRange, long startMillis, ZoneId zone) {
+    }
+}
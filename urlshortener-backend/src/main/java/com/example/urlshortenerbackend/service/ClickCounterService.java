@@ -0,0 +1,172 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.repository.BigtableRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces per-link click counts in memory and flushes them periodically.
+ *
+ * Each click only bumps a striped {@link LongAdder}, so a hot link does not
+ * contend on a single counter. Every flush interval the accumulated deltas are
+ * written as atomic ReadModifyWriteRow increments, and last_access is written at
+ * most once per link per interval. A flushed delta is subtracted from its adder
+ * rather than reset, so clicks that race with the flush are never lost.
+ *
+ * A failed increment is dropped, not retried, like the click rollup increments:
+ * an increment is not idempotent, and a failure such as DEADLINE_EXCEEDED may
+ * come after Bigtable applied it, so a retry could count the clicks twice.
+ * Counts may fall short by the clicks of failed flushes, reported as
+ * clicks.counter.failed, but never exceed the real number.
+ */
+@Service
+public class ClickCounterService {
+
+    // Rewriting the same last-access millis on every click would defeat the striping
+    private static final long LAST_ACCESS_GRANULARITY_MS = 1000;
+
+    private static final class PendingCount {
+        final LongAdder clicks = new LongAdder();
+        volatile long lastAccess;
+    }
+
+    private final BigtableRepository bigtableRepository;
+    private final long flushIntervalMs;
+
+    private final ConcurrentHashMap<String, PendingCount> pending = new ConcurrentHashMap<>();
+    // Idle entries removed in the previous flush; re-checked once for late increments
+    private Map<String, PendingCount> retired = new HashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter flushedClicks;
+    private final Counter failedClicks;
+
+    public ClickCounterService(BigtableRepository bigtableRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.counters.flush-interval-ms:5000}") long flushIntervalMs) {
+        this.bigtableRepository = bigtableRepository;
+        this.flushIntervalMs = flushIntervalMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "click-counter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.flushedClicks = meterRegistry.counter("clicks.counter.flushed");
+        this.failedClicks = meterRegistry.counter("clicks.counter.failed");
+        meterRegistry.gauge("clicks.counter.pending.links", pending, Map::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records one click. Lock-free and I/O-free; safe to call on the request thread.
+     */
+    public void recordClick(String id) {
+        PendingCount count = pending.computeIfAbsent(id, key -> new PendingCount());
+        count.clicks.increment();
+
+        long now = System.currentTimeMillis();
+        if (now - count.lastAccess >= LAST_ACCESS_GRANULARITY_MS) {
+            count.lastAccess = now;
+        }
+    }
+
+    /**
+     * Drops any unflushed clicks for a link that is being deleted, so a late
+     * flush does not write counters into a removed row.
+     */
+    public void discard(String id) {
+        pending.remove(id);
+    }
+
+    /**
+     * Stops the periodic flush and writes whatever is still pending.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        System.out.println("Click counters flushed on shutdown");
+    }
+
+    // Only ever runs on the scheduler thread, or after it has stopped
+    void flush() {
+        Map<String, Long> deltas = new HashMap<>();
+        Map<String, Long> lastAccess = new HashMap<>();
+
+        // Late increments on entries that were retired last time round
+        for (Map.Entry<String, PendingCount> entry : retired.entrySet()) {
+            long delta = entry.getValue().clicks.sum();
+            if (delta != 0) {
+                deltas.merge(entry.getKey(), delta, Long::sum);
+                lastAccess.merge(entry.getKey(), entry.getValue().lastAccess, Math::max);
+            }
+        }
+        retired = new HashMap<>();
+
+        for (Map.Entry<String, PendingCount> entry : pending.entrySet()) {
+            String id = entry.getKey();
+            PendingCount count = entry.getValue();
+
+            long delta = count.clicks.sum();
+            if (delta == 0) {
+                // Idle for a whole interval, stop tracking it
+                if (pending.remove(id, count)) {
+                    retired.put(id, count);
+                }
+                continue;
+            }
+
+            count.clicks.add(-delta);
+            deltas.merge(id, delta, Long::sum);
+            lastAccess.merge(id, count.lastAccess, Math::max);
+        }
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> failed = bigtableRepository.incrementClickCounts(deltas, lastAccess);
+
+        // Not retried: the increment may have been applied before the failure was reported
+        for (Map.Entry<String, Long> entry : failed.entrySet()) {
+            failedClicks.increment(entry.getValue());
+        }
+
+        long flushed = 0;
+        for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+            if (!failed.containsKey(entry.getKey())) {
+                flushed += entry.getValue();
+            }
+        }
+        flushedClicks.increment(flushed);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Error flushing click counters: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.model.ClickEvent;
+import com.example.urlshortenerbackend.model.UserAgentInfo;
+import org.springframework.stereotype.Service;
+
+/**
+ * Derives country, device type, browser with its major version, and OS for a
+ * captured click.
+ * Runs on the ingestion workers, never on the request thread.
+ */
+@Service
+public class ClickEnrichmentService {
+
+    private final GeoIpService geoIpService;
+    private final UserAgentClassifier userAgentClassifier;
+
+    public ClickEnrichmentService(GeoIpService geoIpService, UserAgentClassifier userAgentClassifier) {
+        this.geoIpService = geoIpService;
+        this.userAgentClassifier = userAgentClassifier;
+    }
+
+    public ClickEvent enrich(ClickEvent event) {
+        String country = geoIpService.lookupCountry(event.getIp());
+        UserAgentInfo userAgent = userAgentClassifier.classify(event.getUserAgent());
+        return event.withEnrichment(country, userAgent.getDeviceType(), userAgent.getBrowser(),
+                userAgent.getBrowserMajorVersion(), userAgent.getOs());
+    }
+}
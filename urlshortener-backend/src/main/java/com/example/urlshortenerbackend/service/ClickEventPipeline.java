@@ -0,0 +1,200 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.model.ClickEvent;
+import com.example.urlshortenerbackend.repository.BigtableRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background ingestion of click events.
+ *
+ * The request thread only offers an immutable {@link ClickEvent} to a bounded
+ * queue. Worker threads drain the queue in batches, enrich each event and write
+ * the batch with a single Bigtable bulk mutation. When the queue is full the
+ * configured {@link BackpressurePolicy} decides what happens to new events.
+ */
+@Service
+public class ClickEventPipeline {
+
+    public enum BackpressurePolicy {
+        DROP,   // reject new events while the queue is full
+        BLOCK,  // wait up to block-timeout-ms for space, then drop
+        SAMPLE  // once the queue is half full, keep only sample-rate of new events
+    }
+
+    private final BigtableRepository bigtableRepository;
+    private final ClickEnrichmentService clickEnrichmentService;
+
+    private final BlockingQueue<ClickEvent> queue;
+    private final int workers;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BackpressurePolicy backpressurePolicy;
+    private final long blockTimeoutMs;
+    private final double sampleRate;
+    private final long shutdownTimeoutSeconds;
+    private final boolean storeUserAgent;
+    private final boolean storeReferer;
+
+    private final ExecutorService workerPool;
+    private volatile boolean running = true;
+
+    private final Counter acceptedCounter;
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+
+    public ClickEventPipeline(BigtableRepository bigtableRepository,
+                              ClickEnrichmentService clickEnrichmentService,
+                              MeterRegistry meterRegistry,
+                              WorkerThreads workerThreads,
+                              @Value("${app.clicks.queue-capacity:10000}") int queueCapacity,
+                              @Value("${app.clicks.workers:2}") int workers,
+                              @Value("${app.clicks.batch-size:200}") int batchSize,
+                              @Value("${app.clicks.flush-interval-ms:1000}") long flushIntervalMs,
+                              @Value("${app.clicks.backpressure:DROP}") BackpressurePolicy backpressurePolicy,
+                              @Value("${app.clicks.block-timeout-ms:50}") long blockTimeoutMs,
+                              @Value("${app.clicks.sample-rate:0.1}") double sampleRate,
+                              @Value("${app.clicks.shutdown-timeout-seconds:10}") long shutdownTimeoutSeconds,
+                              @Value("${app.clicks.store-user-agent:true}") boolean storeUserAgent,
+                              @Value("${app.clicks.store-referer:true}") boolean storeReferer) {
+        this.bigtableRepository = bigtableRepository;
+        this.clickEnrichmentService = clickEnrichmentService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.backpressurePolicy = backpressurePolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.sampleRate = sampleRate;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        this.storeUserAgent = storeUserAgent;
+        this.storeReferer = storeReferer;
+
+        this.workerPool = Executors.newFixedThreadPool(workers, workerThreads.factory("click-ingest-"));
+
+        this.acceptedCounter = meterRegistry.counter("clicks.pipeline.accepted");
+        this.droppedCounter = meterRegistry.counter("clicks.pipeline.dropped");
+        this.writtenCounter = meterRegistry.counter("clicks.pipeline.written");
+        this.failedCounter = meterRegistry.counter("clicks.pipeline.failed");
+        meterRegistry.gauge("clicks.pipeline.queue.size", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workers; i++) {
+            workerPool.submit(this::runWorker);
+        }
+    }
+
+    /**
+     * Hands a click to the pipeline. Never performs I/O; returns false if the
+     * event was dropped by the backpressure policy or because we are shutting down.
+     */
+    public boolean submit(ClickEvent event) {
+        if (!running) {
+            droppedCounter.increment();
+            return false;
+        }
+
+        boolean accepted;
+        switch (backpressurePolicy) {
+            case BLOCK:
+                try {
+                    accepted = queue.offer(event, blockTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    accepted = false;
+                }
+                break;
+            case SAMPLE:
+                if (queue.size() * 2 >= queue.size() + queue.remainingCapacity()
+                        && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                    accepted = false;
+                } else {
+                    accepted = queue.offer(event);
+                }
+                break;
+            case DROP:
+            default:
+                accepted = queue.offer(event);
+                break;
+        }
+
+        if (accepted) {
+            acceptedCounter.increment();
+        } else {
+            droppedCounter.increment();
+        }
+        return accepted;
+    }
+
+    /**
+     * Stops accepting events and waits for the workers to write everything
+     * that is still queued. Safe to call more than once.
+     */
+    public void shutdown() {
+        running = false;
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                System.err.println("Click pipeline did not drain in time, " + queue.size() + " events lost");
+                workerPool.shutdownNow();
+            } else {
+                System.out.println("Click pipeline drained successfully");
+            }
+        } catch (InterruptedException e) {
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWorker() {
+        List<ClickEvent> batch = new ArrayList<>(batchSize);
+
+        // Keep going after shutdown until the queue is empty
+        while (running || !queue.isEmpty()) {
+            try {
+                ClickEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<ClickEvent> batch) {
+        List<ClickEvent> enriched = new ArrayList<>(batch.size());
+        for (ClickEvent event : batch) {
+            enriched.add(clickEnrichmentService.enrich(event));
+        }
+
+        try {
+            bigtableRepository.saveClickEvents(enriched, storeUserAgent, storeReferer);
+            writtenCounter.increment(enriched.size());
+        } catch (Exception e) {
+            failedCounter.increment(enriched.size());
+            System.err.println("Error writing click events: " + e.getMessage());
+        }
+    }
+}
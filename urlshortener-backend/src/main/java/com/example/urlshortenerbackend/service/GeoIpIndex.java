@@ -0,0 +1,379 @@
+package com.example.urlshortenerbackend.service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IllformedLocaleException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable IP-range -> country index held in sorted primitive arrays.
+ *
+ * Built from a CSV of {@code start_ip,end_ip,country_code} rows (the DB-IP
+ * "IP to Country Lite" layout; IPv4 and IPv6 rows may be mixed), read through a
+ * memory-mapped buffer. Lookups are a binary search over range starts and do no
+ * I/O. Addresses are stored with the sign bit flipped so unsigned ordering can
+ * use plain signed comparisons.
+ */
+public final class GeoIpIndex {
+
+    public static final String UNKNOWN = "Unknown";
+
+    private static final GeoIpIndex EMPTY = new GeoIpIndex(
+            new int[0], new int[0], new short[0],
+            new long[0], new long[0], new long[0], new long[0], new short[0],
+            new String[0]);
+
+    // IPv4 ranges, sorted by start
+    private final int[] v4Start;
+    private final int[] v4End;
+    private final short[] v4Country;
+
+    // IPv6 ranges as high/low 64-bit halves, sorted by start
+    private final long[] v6StartHi;
+    private final long[] v6StartLo;
+    private final long[] v6EndHi;
+    private final long[] v6EndLo;
+    private final short[] v6Country;
+
+    // Dictionary of country display names, indexed by the short codes above
+    private final String[] countries;
+
+    private GeoIpIndex(int[] v4Start, int[] v4End, short[] v4Country,
+                       long[] v6StartHi, long[] v6StartLo, long[] v6EndHi, long[] v6EndLo, short[] v6Country,
+                       String[] countries) {
+        this.v4Start = v4Start;
+        this.v4End = v4End;
+        this.v4Country = v4Country;
+        this.v6StartHi = v6StartHi;
+        this.v6StartLo = v6StartLo;
+        this.v6EndHi = v6EndHi;
+        this.v6EndLo = v6EndLo;
+        this.v6Country = v6Country;
+        this.countries = countries;
+    }
+
+    public static GeoIpIndex empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return v4Start.length + v6StartHi.length;
+    }
+
+    /**
+     * Loads and indexes a range CSV. Malformed lines (including a header) are skipped.
+     */
+    public static GeoIpIndex load(Path path) throws IOException {
+        Builder builder = new Builder();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] line = new byte[256];
+            int length = 0;
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    builder.addLine(line, length);
+                    length = 0;
+                } else if (length < line.length) {
+                    line[length++] = b;
+                }
+            }
+            builder.addLine(line, length);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Returns the country display name for an IP literal, or "Unknown".
+     * Host names are never resolved.
+     */
+    public String lookup(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return UNKNOWN;
+        }
+
+        if (ip.indexOf(':') < 0) {
+            long v4 = parseIpv4(ip, 0, ip.length());
+            return v4 < 0 ? UNKNOWN : lookupV4((int) v4);
+        }
+
+        byte[] address = parseIpv6(ip);
+        if (address == null) {
+            return UNKNOWN;
+        }
+        if (address.length == 4) {
+            // IPv4-mapped IPv6 address
+            return lookupV4(toInt(address, 0));
+        }
+        return lookupV6(toLong(address, 0), toLong(address, 8));
+    }
+
+    private String lookupV4(int ip) {
+        int key = ip ^ Integer.MIN_VALUE;
+        int low = 0;
+        int high = v4Start.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (v4Start[mid] <= key) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0 || key > v4End[found]) {
+            return UNKNOWN;
+        }
+        return countries[v4Country[found]];
+    }
+
+    private String lookupV6(long hi, long lo) {
+        long keyHi = hi ^ Long.MIN_VALUE;
+        long keyLo = lo ^ Long.MIN_VALUE;
+        int low = 0;
+        int high = v6StartHi.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(v6StartHi[mid], v6StartLo[mid], keyHi, keyLo) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0 || compare(keyHi, keyLo, v6EndHi[found], v6EndLo[found]) > 0) {
+            return UNKNOWN;
+        }
+        return countries[v6Country[found]];
+    }
+
+    private static int compare(long aHi, long aLo, long bHi, long bLo) {
+        int result = Long.compare(aHi, bHi);
+        return result != 0 ? result : Long.compare(aLo, bLo);
+    }
+
+    // Dotted-quad to unsigned 32-bit value, or -1 if the text is not an IPv4 literal
+    private static long parseIpv4(CharSequence text, int from, int to) {
+        long result = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                result = (result << 8) | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return -1;
+        }
+        return (result << 8) | octet;
+    }
+
+    // IPv6 literal to 16 bytes (or 4 for IPv4-mapped addresses), null if invalid
+    private static byte[] parseIpv6(String text) {
+        if (text.isEmpty() || text.charAt(0) == '.') {
+            return null;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean literalChar = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+                    || c == ':' || c == '.';
+            if (!literalChar) {
+                return null;   // also rejects zone IDs and anything that could trigger a DNS lookup
+            }
+        }
+        try {
+            return InetAddress.getByName(text).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static int toInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | (bytes[offset + i] & 0xff);
+        }
+        return result;
+    }
+
+    private static final class Builder {
+        private int[] v4Start = new int[1024];
+        private int[] v4End = new int[1024];
+        private short[] v4Country = new short[1024];
+        private int v4Count;
+
+        private long[] v6StartHi = new long[1024];
+        private long[] v6StartLo = new long[1024];
+        private long[] v6EndHi = new long[1024];
+        private long[] v6EndLo = new long[1024];
+        private short[] v6Country = new short[1024];
+        private int v6Count;
+
+        private final Map<String, Short> countryCodes = new HashMap<>();
+        private String[] countries = new String[0];
+
+        void addLine(byte[] line, int length) {
+            String[] fields = new String(line, 0, length, StandardCharsets.US_ASCII).trim().split(",");
+            if (fields.length < 3) {
+                return;
+            }
+            String start = unquote(fields[0]);
+            String end = unquote(fields[1]);
+            String code = unquote(fields[2]).toUpperCase(Locale.ROOT);
+
+            if (start.indexOf(':') < 0 && end.indexOf(':') < 0) {
+                long startValue = parseIpv4(start, 0, start.length());
+                long endValue = parseIpv4(end, 0, end.length());
+                if (startValue < 0 || endValue < 0) {
+                    return;
+                }
+                addV4((int) startValue, (int) endValue, countryIndex(code));
+            } else {
+                byte[] startBytes = parseIpv6(start);
+                byte[] endBytes = parseIpv6(end);
+                if (startBytes == null || endBytes == null || startBytes.length != 16 || endBytes.length != 16) {
+                    return;
+                }
+                addV6(toLong(startBytes, 0), toLong(startBytes, 8),
+                        toLong(endBytes, 0), toLong(endBytes, 8), countryIndex(code));
+            }
+        }
+
+        private void addV4(int start, int end, short country) {
+            if (v4Count == v4Start.length) {
+                int capacity = v4Count * 2;
+                v4Start = Arrays.copyOf(v4Start, capacity);
+                v4End = Arrays.copyOf(v4End, capacity);
+                v4Country = Arrays.copyOf(v4Country, capacity);
+            }
+            v4Start[v4Count] = start ^ Integer.MIN_VALUE;
+            v4End[v4Count] = end ^ Integer.MIN_VALUE;
+            v4Country[v4Count] = country;
+            v4Count++;
+        }
+
+        private void addV6(long startHi, long startLo, long endHi, long endLo, short country) {
+            if (v6Count == v6StartHi.length) {
+                int capacity = v6Count * 2;
+                v6StartHi = Arrays.copyOf(v6StartHi, capacity);
+                v6StartLo = Arrays.copyOf(v6StartLo, capacity);
+                v6EndHi = Arrays.copyOf(v6EndHi, capacity);
+                v6EndLo = Arrays.copyOf(v6EndLo, capacity);
+                v6Country = Arrays.copyOf(v6Country, capacity);
+            }
+            v6StartHi[v6Count] = startHi ^ Long.MIN_VALUE;
+            v6StartLo[v6Count] = startLo ^ Long.MIN_VALUE;
+            v6EndHi[v6Count] = endHi ^ Long.MIN_VALUE;
+            v6EndLo[v6Count] = endLo ^ Long.MIN_VALUE;
+            v6Country[v6Count] = country;
+            v6Count++;
+        }
+
+        private short countryIndex(String code) {
+            Short index = countryCodes.get(code);
+            if (index != null) {
+                return index;
+            }
+            short next = (short) countries.length;
+            countries = Arrays.copyOf(countries, countries.length + 1);
+            countries[next] = displayName(code);
+            countryCodes.put(code, next);
+            return next;
+        }
+
+        // ip-api.com reported English country names, keep storing those
+        private static String displayName(String code) {
+            if (code.length() != 2 || code.equals("ZZ")) {
+                return UNKNOWN;
+            }
+            String name;
+            try {
+                name = new Locale.Builder().setRegion(code).build().getDisplayCountry(Locale.ENGLISH);
+            } catch (IllformedLocaleException e) {
+                return UNKNOWN;
+            }
+            return name.isEmpty() || name.equals(code) ? UNKNOWN : name;
+        }
+
+        private static String unquote(String field) {
+            String trimmed = field.trim();
+            if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+                return trimmed.substring(1, trimmed.length() - 1);
+            }
+            return trimmed;
+        }
+
+        GeoIpIndex build() {
+            Integer[] v4Order = sortedOrder(v4Count, (a, b) -> Integer.compare(v4Start[a], v4Start[b]));
+            Integer[] v6Order = sortedOrder(v6Count,
+                    (a, b) -> compare(v6StartHi[a], v6StartLo[a], v6StartHi[b], v6StartLo[b]));
+
+            int[] sortedV4Start = new int[v4Count];
+            int[] sortedV4End = new int[v4Count];
+            short[] sortedV4Country = new short[v4Count];
+            for (int i = 0; i < v4Count; i++) {
+                int from = v4Order[i];
+                sortedV4Start[i] = v4Start[from];
+                sortedV4End[i] = v4End[from];
+                sortedV4Country[i] = v4Country[from];
+            }
+
+            long[] sortedV6StartHi = new long[v6Count];
+            long[] sortedV6StartLo = new long[v6Count];
+            long[] sortedV6EndHi = new long[v6Count];
+            long[] sortedV6EndLo = new long[v6Count];
+            short[] sortedV6Country = new short[v6Count];
+            for (int i = 0; i < v6Count; i++) {
+                int from = v6Order[i];
+                sortedV6StartHi[i] = v6StartHi[from];
+                sortedV6StartLo[i] = v6StartLo[from];
+                sortedV6EndHi[i] = v6EndHi[from];
+                sortedV6EndLo[i] = v6EndLo[from];
+                sortedV6Country[i] = v6Country[from];
+            }
+
+            return new GeoIpIndex(sortedV4Start, sortedV4End, sortedV4Country,
+                    sortedV6StartHi, sortedV6StartLo, sortedV6EndHi, sortedV6EndLo, sortedV6Country,
+                    countries);
+        }
+
+        private static Integer[] sortedOrder(int count, Comparator<Integer> comparator) {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            // Published databases are already sorted, which keeps this close to linear
+            Arrays.sort(order, comparator);
+            return order;
+        }
+    }
+}
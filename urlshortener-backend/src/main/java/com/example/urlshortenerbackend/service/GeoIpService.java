@@ -0,0 +1,115 @@
+package com.example.urlshortenerbackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves client IPs to country names from a local range database.
+ *
+ * Replaces the per-click ip-api.com call: lookups hit a bounded cache of recent
+ * IPs first, then a {@link GeoIpIndex} binary search, and never touch the network.
+ * The database file is checked periodically and reloaded in the background when
+ * it changes; lookups keep using the previous index until the new one is ready.
+ * Without a configured database every lookup returns "Unknown", and startup
+ * logs a warning saying so.
+ */
+@Service
+public class GeoIpService {
+
+    private final String databasePath;
+    private final long reloadCheckSeconds;
+    private final Cache<String, String> recentLookups;
+
+    private volatile GeoIpIndex index = GeoIpIndex.empty();
+    private volatile long loadedModifiedTime = -1;
+
+    private final ScheduledExecutorService reloadScheduler;
+
+    public GeoIpService(@Value("${app.geoip.database-path:}") String databasePath,
+                        @Value("${app.geoip.reload-check-seconds:300}") long reloadCheckSeconds,
+                        @Value("${app.geoip.cache-size:10000}") long cacheSize,
+                        MeterRegistry meterRegistry) {
+        this.databasePath = databasePath;
+        this.reloadCheckSeconds = reloadCheckSeconds;
+        this.recentLookups = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                // Bounds how long an answer computed against a replaced index can survive a reload
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .recordStats()
+                .build();
+        this.reloadScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "geoip-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CaffeineCacheMetrics.monitor(meterRegistry, recentLookups, "geoip_lookups");
+        meterRegistry.gauge("geoip.index.ranges", this, service -> service.index.size());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (databasePath == null || databasePath.isEmpty()) {
+            System.err.println("WARNING: No GeoIP database configured (app.geoip.database-path / APP_GEOIP_DATABASE_PATH), "
+                    + "every click will be recorded with country Unknown");
+            return;
+        }
+        reloadIfChanged();
+        reloadScheduler.scheduleWithFixedDelay(this::reloadIfChanged,
+                reloadCheckSeconds, reloadCheckSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        reloadScheduler.shutdownNow();
+    }
+
+    /**
+     * Returns the English country name for an IP address, or "Unknown".
+     */
+    public String lookupCountry(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return GeoIpIndex.UNKNOWN;
+        }
+        // Reads the index when the lookup runs, not when it is requested, so a lookup never
+        // binds an index that a reload has already replaced
+        return recentLookups.get(ip, key -> index.lookup(key));
+    }
+
+    private void reloadIfChanged() {
+        Path path = Paths.get(databasePath);
+        try {
+            long modifiedTime = Files.getLastModifiedTime(path).toMillis();
+            if (modifiedTime == loadedModifiedTime) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            GeoIpIndex loaded = GeoIpIndex.load(path);
+
+            // Swap, then forget answers from the previous database
+            index = loaded;
+            loadedModifiedTime = modifiedTime;
+            recentLookups.invalidateAll();
+
+            System.out.println("Loaded GeoIP database " + path + " with " + loaded.size() + " ranges in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (IOException e) {
+            System.err.println("Error loading GeoIP database " + path + ": " + e.getMessage());
+        }
+    }
+}
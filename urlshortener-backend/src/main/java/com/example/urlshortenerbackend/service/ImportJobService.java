@@ -0,0 +1,391 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.model.BulkShortenResult;
+import com.example.urlshortenerbackend.model.ImportJob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs bulk imports as background jobs.
+ *
+ * The upload is spooled to disk as it arrives, so the request returns as soon
+ * as the body has been received. A slot in the worker pool is reserved before
+ * the body is read, and uploads past the size limit are cut off, so a full
+ * queue or an oversized upload never costs more disk than the limit. A worker then reads the file line by line,
+ * shortens it in fixed-size batches through {@link BulkShortenService}, and
+ * appends one NDJSON result per input line to a results file. Memory use is
+ * bounded by the batch size, whatever the size of the import.
+ *
+ * Jobs live in memory and are forgotten, with their files, after the retention
+ * period; a restart loses unfinished jobs.
+ */
+@Service
+public class ImportJobService {
+
+    private final BulkShortenService bulkShortenService;
+    private final int batchSize;
+    private final long retentionMillis;
+    private final long maxUploadBytes;
+    private final Path spoolDirectory;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor workers;
+    // One permit per running or queued job, taken before the upload is read
+    private final Semaphore slots;
+    private final ScheduledExecutorService cleanupScheduler;
+
+    public ImportJobService(BulkShortenService bulkShortenService,
+                            WorkerThreads workerThreads,
+                            @Value("${app.import.batch-size:2000}") int batchSize,
+                            @Value("${app.import.workers:2}") int workerCount,
+                            @Value("${app.import.max-queued-jobs:20}") int maxQueuedJobs,
+                            @Value("${app.import.retention-hours:24}") long retentionHours,
+                            @Value("${app.import.max-upload-bytes:104857600}") long maxUploadBytes,
+                            @Value("${app.import.spool-dir:}") String spoolDir) throws IOException {
+        this.bulkShortenService = bulkShortenService;
+        this.batchSize = batchSize;
+        this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+        this.maxUploadBytes = maxUploadBytes;
+        this.spoolDirectory = spoolDir == null || spoolDir.isEmpty()
+                ? Files.createTempDirectory("url-imports")
+                : Files.createDirectories(Paths.get(spoolDir));
+
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedJobs), workerThreads.factory("import-job-"));
+        this.slots = new Semaphore(workerCount + maxQueuedJobs);
+        this.cleanupScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "import-job-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        cleanupScheduler.scheduleWithFixedDelay(this::removeExpiredJobs, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleanupScheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Spools an upload to disk and queues it for processing.
+     *
+     * @param body    The request body, read to the end
+     * @param format  NDJSON or CSV
+     * @param ownerId Owner for the created links and the job, or null
+     * @return The queued job
+     * @throws IllegalStateException   if too many imports are already queued; the body is not read
+     * @throws UploadTooLargeException if the body is larger than the upload limit
+     */
+    public ImportJob submit(InputStream body, ImportJob.Format format, String ownerId) throws IOException {
+        if (!slots.tryAcquire()) {
+            throw new IllegalStateException("Too many imports in progress, please retry later");
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path inputFile = spoolDirectory.resolve(id + ".input");
+        Path resultsFile = spoolDirectory.resolve(id + ".results.ndjson");
+        try {
+            spool(body, inputFile);
+        } catch (IOException | RuntimeException e) {
+            slots.release();
+            deleteQuietly(inputFile);
+            throw e;
+        }
+
+        ImportJob job = new ImportJob(id, ownerId, format, inputFile, resultsFile, System.currentTimeMillis());
+        jobs.put(id, job);
+        try {
+            workers.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            // A worker that just released its slot may not be taking tasks yet
+            slots.release();
+            jobs.remove(id);
+            deleteQuietly(inputFile);
+            throw new IllegalStateException("Too many imports in progress, please retry later");
+        }
+        return job;
+    }
+
+    // Copies the body to the file, failing as soon as it passes the upload limit
+    private void spool(InputStream body, Path inputFile) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        try (OutputStream out = Files.newOutputStream(inputFile)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+                if (total > maxUploadBytes) {
+                    throw new UploadTooLargeException(maxUploadBytes);
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    public Optional<ImportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(ImportJob job) {
+        job.markRunning();
+        try (BufferedReader reader = Files.newBufferedReader(job.getInputFile(), StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(job.getResultsFile(), StandardCharsets.UTF_8)) {
+            LineParser parser = job.getFormat() == ImportJob.Format.CSV ? new CsvLineParser() : new NdjsonLineParser();
+
+            List<ParsedLine> batch = new ArrayList<>(batchSize);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                ParsedLine parsed = parser.parse(lineNumber, line);
+                if (parsed != null) {
+                    batch.add(parsed);
+                }
+                if (batch.size() >= batchSize) {
+                    processBatch(job, batch, writer);
+                    batch.clear();
+                }
+            }
+            processBatch(job, batch, writer);
+            job.markCompleted(System.currentTimeMillis());
+        } catch (Exception e) {
+            System.err.println("Import job " + job.getId() + " failed: " + e.getMessage());
+            job.markFailed(e.getMessage(), System.currentTimeMillis());
+        } finally {
+            deleteQuietly(job.getInputFile());
+            slots.release();
+        }
+    }
+
+    private void processBatch(ImportJob job, List<ParsedLine> batch, BufferedWriter writer) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Map<String, String>> items = new ArrayList<>();
+        for (ParsedLine parsed : batch) {
+            if (parsed.error == null) {
+                items.add(parsed.item);
+            }
+        }
+        List<BulkShortenResult> results = bulkShortenService.shorten(items, job.getOwnerId());
+
+        long succeeded = 0;
+        long failed = 0;
+        int next = 0;
+        for (ParsedLine parsed : batch) {
+            JSONObject output = new JSONObject().put("line", parsed.lineNumber);
+            if (parsed.error != null) {
+                output.put("error", parsed.error);
+                failed++;
+            } else {
+                BulkShortenResult result = results.get(next++);
+                output.put("url", result.getUrl());
+                if (result.isSuccess()) {
+                    output.put("shortId", result.getShortId());
+                    succeeded++;
+                } else {
+                    output.put("error", result.getError());
+                    failed++;
+                }
+            }
+            writer.write(output.toString());
+            writer.newLine();
+        }
+        writer.flush();
+        job.recordResults(succeeded, failed);
+    }
+
+    private void removeExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        jobs.values().removeIf(job -> {
+            if (job.isFinished() && job.getFinishedAt() < cutoff) {
+                deleteQuietly(job.getResultsFile());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Error deleting " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Thrown when an upload is larger than app.import.max-upload-bytes.
+     */
+    public static final class UploadTooLargeException extends IOException {
+        public UploadTooLargeException(long maxUploadBytes) {
+            super("Upload exceeds the limit of " + maxUploadBytes + " bytes");
+        }
+    }
+
+    // One input line: either a bulk shorten item or the reason it could not be read
+    private static final class ParsedLine {
+        final long lineNumber;
+        final Map<String, String> item;
+        final String error;
+
+        ParsedLine(long lineNumber, Map<String, String> item, String error) {
+            this.lineNumber = lineNumber;
+            this.item = item;
+            this.error = error;
+        }
+    }
+
+    private interface LineParser {
+        // Returns null for lines that carry no item, such as a CSV header
+        ParsedLine parse(long lineNumber, String line);
+    }
+
+    // {"url": "...", "tag": "...", "isPrivate": true} per line
+    private static final class NdjsonLineParser implements LineParser {
+        @Override
+        public ParsedLine parse(long lineNumber, String line) {
+            try {
+                JSONObject json = new JSONObject(line);
+                Map<String, String> item = new HashMap<>();
+                item.put("url", json.optString("url", null));
+                if (json.has("tag")) {
+                    item.put("tag", json.optString("tag"));
+                }
+                if (json.has("isPrivate")) {
+                    item.put("isPrivate", String.valueOf(json.optBoolean("isPrivate")));
+                }
+                return new ParsedLine(lineNumber, item, null);
+            } catch (JSONException e) {
+                return new ParsedLine(lineNumber, null, "Invalid JSON: " + e.getMessage());
+            }
+        }
+    }
+
+    // url[,tag[,isPrivate]] per line, with an optional header naming the columns
+    private static final class CsvLineParser implements LineParser {
+        private int urlColumn = 0;
+        private int tagColumn = 1;
+        private int privateColumn = 2;
+        private boolean firstLine = true;
+
+        @Override
+        public ParsedLine parse(long lineNumber, String line) {
+            List<String> fields = splitCsv(line);
+            if (firstLine) {
+                firstLine = false;
+                if (!fields.isEmpty() && fields.get(0).trim().equalsIgnoreCase("url")) {
+                    readHeader(fields);
+                    return null;
+                }
+            }
+
+            Map<String, String> item = new HashMap<>();
+            item.put("url", field(fields, urlColumn));
+            String tag = field(fields, tagColumn);
+            if (tag != null) {
+                item.put("tag", tag);
+            }
+            String isPrivate = field(fields, privateColumn);
+            if (isPrivate != null) {
+                item.put("isPrivate", isPrivate);
+            }
+            return new ParsedLine(lineNumber, item, null);
+        }
+
+        private void readHeader(List<String> header) {
+            urlColumn = tagColumn = privateColumn = -1;
+            for (int i = 0; i < header.size(); i++) {
+                switch (header.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "url":
+                        urlColumn = i;
+                        break;
+                    case "tag":
+                        tagColumn = i;
+                        break;
+                    case "isprivate":
+                        privateColumn = i;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private static String field(List<String> fields, int column) {
+            if (column < 0 || column >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(column).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        // RFC 4180 fields within one line: quoted fields may contain commas and "" escapes
+        private static List<String> splitCsv(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.model.DeletionTask;
+import com.example.urlshortenerbackend.model.UrlEntity;
+import com.example.urlshortenerbackend.repository.BigtableRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes links in the background.
+ *
+ * A deletion first tombstones the link, so it disappears from redirects and
+ * listings before the request returns. After the purge delay a worker removes
+ * the link's click events with bulk deletes over its key ranges, and finally
+ * the link row.
+ *
+ * The delay outlasts the link caches of every instance and the clicks still
+ * queued for counting and logging, which would otherwise write click rows,
+ * rollups and counters under the ID after the purge. Until the purge the
+ * tombstoned row keeps the ID taken, so it cannot be claimed again and inherit
+ * them.
+ *
+ * A failed purge is retried with exponential backoff; the purge is safe to
+ * re-run, and until it succeeds the link's rows stay behind and its ID stays
+ * taken. Every started deletion is also recorded in Bigtable, so deletions cut
+ * short by a restart are picked up again on startup. Task progress lives in memory
+ * and is forgotten after the retention period.
+ */
+@Service
+public class LinkDeletionService {
+
+    private final BigtableRepository bigtableRepository;
+    private final ClickAnalyticsService clickAnalyticsService;
+    private final long retentionMillis;
+    private final long purgeDelayMillis;
+    private final long retryInitialMillis;
+    private final long retryMaxMillis;
+
+    private final Map<String, DeletionTask> tasks = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService scheduler;
+
+    public LinkDeletionService(BigtableRepository bigtableRepository,
+                               ClickAnalyticsService clickAnalyticsService,
+                               WorkerThreads workerThreads,
+                               @Value("${app.deletion.workers:2}") int workerCount,
+                               @Value("${app.deletion.retention-hours:24}") long retentionHours,
+                               @Value("${app.deletion.purge-delay-seconds:600}") long purgeDelaySeconds,
+                               @Value("${app.deletion.retry-initial-seconds:30}") long retryInitialSeconds,
+                               @Value("${app.deletion.retry-max-seconds:3600}") long retryMaxSeconds) {
+        this.bigtableRepository = bigtableRepository;
+        this.clickAnalyticsService = clickAnalyticsService;
+        this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+        this.purgeDelayMillis = TimeUnit.SECONDS.toMillis(purgeDelaySeconds);
+        this.retryInitialMillis = TimeUnit.SECONDS.toMillis(retryInitialSeconds);
+        this.retryMaxMillis = TimeUnit.SECONDS.toMillis(retryMaxSeconds);
+
+        // Unbounded: by the time a task is queued its link is already tombstoned and must be purged
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), workerThreads.factory("link-deletion-"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "link-deletion-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::removeExpiredTasks, 1, 1, TimeUnit.HOURS);
+        workers.execute(this::resumePendingDeletions);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Hides a link at once and queues the removal of its clicks and row, which
+     * starts after the purge delay.
+     *
+     * @param urlEntity The link, as read before the deletion
+     * @return The queued task
+     */
+    public DeletionTask delete(UrlEntity urlEntity) {
+        long deletedAt = System.currentTimeMillis();
+        bigtableRepository.markDeleted(urlEntity);
+        clickAnalyticsService.invalidate(urlEntity.getId());
+        return submit(urlEntity.getId(), urlEntity.getOwnerId(), deletedAt);
+    }
+
+    public Optional<DeletionTask> getTask(String id) {
+        return Optional.ofNullable(tasks.get(id));
+    }
+
+    private DeletionTask submit(String shortId, String ownerId, long deletedAt) {
+        long now = System.currentTimeMillis();
+        DeletionTask task = new DeletionTask(UUID.randomUUID().toString(), shortId, ownerId, now,
+                deletedAt + purgeDelayMillis);
+        tasks.put(task.getId(), task);
+        schedule(task, Math.max(0, task.getPurgeAfter() - now));
+        return task;
+    }
+
+    private void schedule(DeletionTask task, long delayMillis) {
+        scheduler.schedule(() -> workers.execute(() -> run(task)), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(DeletionTask task) {
+        task.markRunning();
+        try {
+            long deleted = bigtableRepository.purgeDeletedUrl(task.getShortId(), task::recordDeletedClickEvents);
+            // Results computed while the purge was pending must not outlive the clicks they count
+            clickAnalyticsService.invalidate(task.getShortId());
+            System.out.println("Deleted link " + task.getShortId() + " and " + deleted + " click events");
+            task.markCompleted(System.currentTimeMillis());
+        } catch (InterruptedException e) {
+            // shutting down; the deletion marker stays and the purge resumes on the next start
+            Thread.currentThread().interrupt();
+            task.markFailed("Interrupted", System.currentTimeMillis());
+        } catch (Exception e) {
+            int attempts = task.markRetrying(e.getMessage());
+            long delay = retryDelay(attempts);
+            System.err.println("Deletion of " + task.getShortId() + " failed (attempt " + attempts + "), retrying in "
+                    + TimeUnit.MILLISECONDS.toSeconds(delay) + " s: " + e.getMessage());
+            try {
+                schedule(task, delay);
+            } catch (RejectedExecutionException rejected) {
+                // shutting down; the deletion marker stays and the purge resumes on the next start
+                task.markFailed(e.getMessage(), System.currentTimeMillis());
+            }
+        }
+    }
+
+    // Doubles from the initial delay with each failed attempt, up to the maximum
+    private long retryDelay(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        return Math.min(retryMaxMillis, retryInitialMillis << doublings);
+    }
+
+    // The owner is not recorded with the marker; nobody holds the IDs of resumed tasks anyway.
+    // The purge delay still counts from the original deletion.
+    private void resumePendingDeletions() {
+        try {
+            for (Map.Entry<String, Long> deletion : bigtableRepository.findPendingDeletions().entrySet()) {
+                System.out.println("Resuming deletion of " + deletion.getKey());
+                submit(deletion.getKey(), null, deletion.getValue());
+            }
+        } catch (Exception e) {
+            System.err.println("Error reading pending deletions: " + e.getMessage());
+        }
+    }
+
+    private void removeExpiredTasks() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        tasks.values().removeIf(task -> task.isFinished() && task.getFinishedAt() < cutoff);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.repository.BigtableRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out unique short IDs without reading storage.
+ *
+ * Each instance leases a block of sequence numbers from a shared counter row
+ * with one atomic increment and then allocates from memory until the block is
+ * used up. Sequence numbers are base62-encoded; when permutation is enabled they
+ * first go through a keyed Feistel network over a 40-bit domain, so consecutive
+ * links get unrelated 7-character IDs instead of guessable neighbours. The
+ * network itself is public, so that only holds with a secret key: startup fails
+ * when permutation is enabled and the secret is left at 0.
+ */
+@Service
+public class ShortIdAllocator {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    // 62^7 > 2^40, so every permuted value fits in 7 characters
+    private static final int DOMAIN_BITS = 40;
+    private static final long DOMAIN_MASK = (1L << DOMAIN_BITS) - 1;
+    private static final int HALF_BITS = DOMAIN_BITS / 2;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int PERMUTED_LENGTH = 7;
+    private static final int FEISTEL_ROUNDS = 4;
+
+    // Path segments under /api that a link ID must not shadow; used for custom aliases too
+    static final Set<String> RESERVED_IDS = Set.of("alias", "bulk-shorten", "deletions", "imports", "shorten", "trending", "urls", "user");
+
+    private final BigtableRepository bigtableRepository;
+    private final long blockSize;
+    private final boolean permute;
+    private final long secret;
+
+    // Current lease: next value to hand out and the end of the block (exclusive), guarded by leaseLock.
+    // Not synchronized: leasing blocks on Bigtable and would pin a virtual thread to its carrier.
+    private final ReentrantLock leaseLock = new ReentrantLock();
+    private long next;
+    private long limit;
+
+    public ShortIdAllocator(BigtableRepository bigtableRepository,
+                            @Value("${app.short-id.block-size:1000}") long blockSize,
+                            @Value("${app.short-id.permute:true}") boolean permute,
+                            @Value("${app.short-id.secret:0}") long secret) {
+        if (permute && secret == 0) {
+            throw new IllegalStateException("app.short-id.secret must be set when app.short-id.permute is true: "
+                    + "with the default key, one ID reveals the sequence and every other ID can be enumerated");
+        }
+        this.bigtableRepository = bigtableRepository;
+        this.blockSize = blockSize;
+        this.permute = permute;
+        this.secret = secret;
+    }
+
+    /**
+     * Returns a short ID that no other call, on any instance, has returned.
+     * Only leasing a new block touches storage. IDs that would shadow an API
+     * path are skipped.
+     */
+    public String nextId() {
+        String id;
+        do {
+            id = encode(nextSequence());
+        } while (RESERVED_IDS.contains(id));
+        return id;
+    }
+
+    private long nextSequence() {
+        leaseLock.lock();
+        try {
+            if (next >= limit) {
+                long end = bigtableRepository.incrementShortIdSequence(blockSize);
+                next = end - blockSize;
+                limit = end;
+            }
+            return next++;
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    String encode(long sequence) {
+        if (!permute) {
+            return toBase62(sequence, 1);
+        }
+        if (sequence > DOMAIN_MASK) {
+            throw new IllegalStateException("Short ID sequence exhausted the permuted ID space");
+        }
+        return toBase62(permute(sequence), PERMUTED_LENGTH);
+    }
+
+    // Balanced Feistel network: a bijection on [0, 2^40) for any secret
+    private long permute(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int round = 0; round < FEISTEL_ROUNDS; round++) {
+            long mixed = left ^ (roundFunction(right, round) & HALF_MASK);
+            left = right;
+            right = mixed;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private long roundFunction(long half, int round) {
+        long z = half + secret + (round + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static String toBase62(long value, int minimumLength) {
+        char[] buffer = new char[11];
+        int position = buffer.length;
+        do {
+            buffer[--position] = ALPHABET.charAt((int) (value % 62));
+            value /= 62;
+        } while (value > 0);
+        while (buffer.length - position < minimumLength) {
+            buffer[--position] = ALPHABET.charAt(0);
+        }
+        return new String(buffer, position, buffer.length - position);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.urlshortenerbackend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over short IDs.
+ *
+ * Safe for concurrent adds and lookups without locking: bits live in an
+ * {@link AtomicLongArray} and are only ever set. A negative answer is exact,
+ * a positive one is wrong with roughly {@link #expectedFpp()} probability.
+ */
+public final class ShortIdBloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong bitsSet = new AtomicLong();
+
+    private ShortIdBloomFilter(long bitCount, int hashCount) {
+        this.words = new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+        this.bitCount = (long) words.length() << 6;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Sizes a filter for the given number of IDs at the target false-positive rate.
+     */
+    public static ShortIdBloomFilter create(long expectedInsertions, double fpp) {
+        long n = Math.max(1, expectedInsertions);
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-n * Math.log(fpp) / (ln2 * ln2));
+        // AtomicLongArray is int-indexed
+        bits = Math.max(64, Math.min(bits, (long) Integer.MAX_VALUE << 6));
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * ln2));
+        return new ShortIdBloomFilter(bits, Math.min(hashes, 16));
+    }
+
+    public void put(String id) {
+        long hash = hash64(id);
+        long h1 = hash;
+        long h2 = mix64(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            setBit(Math.floorMod(h1 + i * h2, bitCount));
+        }
+    }
+
+    public boolean mightContain(String id) {
+        long hash = hash64(id);
+        long h1 = hash;
+        long h2 = mix64(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * False-positive probability at the current fill, (bits set / bits)^k.
+     */
+    public double expectedFpp() {
+        return Math.pow((double) bitsSet.get() / bitCount, hashCount);
+    }
+
+    /**
+     * Estimated number of distinct IDs added, derived from the fill ratio.
+     */
+    public long approximateElementCount() {
+        double fill = (double) bitsSet.get() / bitCount;
+        if (fill >= 1.0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.round(-Math.log1p(-fill) * bitCount / hashCount);
+    }
+
+    private void setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long word;
+        do {
+            word = words.get(index);
+            if ((word & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(index, word, word | mask));
+        bitsSet.incrementAndGet();
+    }
+
+    // FNV-1a over the UTF-8 bytes, finished with a 64-bit avalanche
+    private static long hash64(String id) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return mix64(hash);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB93FE1A85A53L;
+        return z ^ (z >>> 33);
+    }
+}
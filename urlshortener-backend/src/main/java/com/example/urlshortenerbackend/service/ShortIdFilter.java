@@ -0,0 +1,266 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.repository.BigtableRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory membership filter of all existing short IDs.
+ *
+ * Lets lookups for IDs that were never created (scanners, typos, alias checks)
+ * be answered without reading the link row. The filter is rebuilt from a
+ * key-only scan on a long interval, sized from the number of links, and kept
+ * current in between by adding IDs created here and by reading the journal of
+ * created IDs (see BigtableRepository#forEachNewShortId), a small key range
+ * holding only the IDs created since the last read.
+ *
+ * A link created by another instance is only known here once a journal read has
+ * picked it up, so a negative answer is never given from the filter alone: it
+ * waits for a journal read that started after the question was asked, which
+ * sees every link claimed before. Concurrent negatives share that read, and
+ * reads are spaced by a minimum interval, so scanners add a little latency to
+ * their 404s and a bounded number of small range reads, whatever their rate.
+ * Deleted IDs stay in the filter until the next full rebuild, which only costs
+ * a storage read.
+ *
+ * Until the first rebuild completes every ID is reported as possibly existing.
+ */
+@Service
+public class ShortIdFilter {
+
+    // Journal reads look back this far past the last one, to tolerate clock skew between writers
+    private static final long JOURNAL_OVERLAP_MS = 60_000;
+
+    private final BigtableRepository bigtableRepository;
+    private final double targetFpp;
+    private final long minimumCapacity;
+    private final long rebuildIntervalSeconds;
+    private final long refreshIntervalSeconds;
+    private final long minRefreshIntervalMillis;
+    // Journal rows older than this are deleted by rebuilds; a cursor older than this has missed some
+    private final long journalRetentionMillis;
+
+    private volatile ShortIdBloomFilter filter;
+    // Filter being rebuilt, which must also receive concurrent adds
+    private volatile ShortIdBloomFilter building;
+    // Every ID created before this time (ms) has been added to the filter
+    private final AtomicLong journalCursor = new AtomicLong();
+    // Links found by the last rebuild, which sizes the next one; -1 before the first
+    private volatile long linkCount = -1;
+
+    // Journal read that has not started yet, shared by everyone waiting for one
+    private final Object refreshLock = new Object();
+    private CompletableFuture<Void> pendingRefresh;
+    private long lastRefreshStarted;
+
+    private final AtomicLong lastRebuildMillis = new AtomicLong();
+    private final Timer rebuildTimer;
+
+    // Rebuilds are long full scans; journal reads must not queue behind them
+    private final ScheduledExecutorService scheduler;
+    private final ScheduledExecutorService refresher;
+
+    public ShortIdFilter(BigtableRepository bigtableRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.short-id-filter.fpp:0.01}") double targetFpp,
+                         @Value("${app.short-id-filter.minimum-capacity:100000}") long minimumCapacity,
+                         @Value("${app.short-id-filter.rebuild-interval-seconds:3600}") long rebuildIntervalSeconds,
+                         @Value("${app.short-id-filter.refresh-interval-seconds:15}") long refreshIntervalSeconds,
+                         @Value("${app.short-id-filter.min-refresh-interval-millis:200}") long minRefreshIntervalMillis) {
+        this.bigtableRepository = bigtableRepository;
+        this.targetFpp = targetFpp;
+        this.minimumCapacity = minimumCapacity;
+        this.rebuildIntervalSeconds = rebuildIntervalSeconds;
+        this.refreshIntervalSeconds = refreshIntervalSeconds;
+        this.minRefreshIntervalMillis = minRefreshIntervalMillis;
+        this.journalRetentionMillis = 2 * TimeUnit.SECONDS.toMillis(rebuildIntervalSeconds);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "short-id-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "short-id-filter-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.rebuildTimer = meterRegistry.timer("short_id_filter.rebuild");
+        meterRegistry.gauge("short_id_filter.bits", this,
+                service -> service.filter == null ? 0 : service.filter.bitSize());
+        meterRegistry.gauge("short_id_filter.entries", this,
+                service -> service.filter == null ? 0 : service.filter.approximateElementCount());
+        meterRegistry.gauge("short_id_filter.fpp", this,
+                service -> service.filter == null ? 1.0 : service.filter.expectedFpp());
+        meterRegistry.gauge("short_id_filter.last_rebuild", lastRebuildMillis, AtomicLong::get);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.schedule(this::rebuildQuietly, 0, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::rebuildQuietly,
+                rebuildIntervalSeconds, rebuildIntervalSeconds, TimeUnit.SECONDS);
+        refresher.scheduleWithFixedDelay(this::requestRefresh,
+                refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        refresher.shutdownNow();
+    }
+
+    /**
+     * False only if the ID certainly does not exist. Blocks for a journal read when
+     * the filter does not know the ID; see {@link #mightExistAsync}.
+     */
+    public boolean mightExist(String id) {
+        return mightExistAsync(id).join();
+    }
+
+    /**
+     * Non-blocking {@link #mightExist}. Completes at once for IDs the filter knows;
+     * otherwise once a journal read started after this call has been added, or
+     * with true if that read fails.
+     */
+    public CompletableFuture<Boolean> mightExistAsync(String id) {
+        if (contains(id)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return requestRefresh().handle((ignored, error) -> error != null || contains(id));
+    }
+
+    /**
+     * Records a newly created short ID.
+     */
+    public void add(String id) {
+        // Read building first: rebuild publishes the new filter before clearing it
+        ShortIdBloomFilter next = building;
+        ShortIdBloomFilter current = filter;
+        if (next != null) {
+            next.put(id);
+        }
+        if (current != null) {
+            current.put(id);
+        }
+    }
+
+    private boolean contains(String id) {
+        ShortIdBloomFilter current = filter;
+        return current == null || current.mightContain(id);
+    }
+
+    // Only runs on the scheduler thread
+    void rebuild() throws InterruptedException {
+        long start = System.nanoTime();
+        long scanStarted = System.currentTimeMillis();
+        // The journal covers what this scan misses, from before it started
+        journalCursor.compareAndSet(0, scanStarted);
+
+        // Size for the link count with room to grow until the next rebuild; counted first the first time
+        long expected = linkCount;
+        if (expected < 0) {
+            long[] counted = {0};
+            bigtableRepository.forEachShortId(id -> counted[0]++);
+            expected = counted[0];
+        }
+        ShortIdBloomFilter next = ShortIdBloomFilter.create(Math.max(minimumCapacity, expected * 2), targetFpp);
+        building = next;
+
+        long[] found = {0};
+        try {
+            bigtableRepository.forEachShortId(id -> {
+                next.put(id);
+                found[0]++;
+            });
+            filter = next;
+            linkCount = found[0];
+            journalCursor.accumulateAndGet(scanStarted, Math::max);
+            lastRebuildMillis.set(System.currentTimeMillis());
+        } finally {
+            building = null;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        System.out.println("Rebuilt short ID filter with " + found[0] + " IDs in "
+                + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+
+        // Every instance reads the journal far more often; older rows only repeat what rebuilds found
+        bigtableRepository.deleteNewShortIdsBefore(scanStarted - journalRetentionMillis);
+    }
+
+    // Adds the IDs created since the last journal read, including those created by other instances
+    void refresh() {
+        if (filter == null) {
+            // The first rebuild covers everything up to the start of its scan
+            return;
+        }
+        long scanStarted = System.currentTimeMillis();
+        long cursor = journalCursor.get();
+        if (cursor < scanStarted - journalRetentionMillis) {
+            throw new IllegalStateException("Short ID journal no longer covers the last read; waiting for a rebuild");
+        }
+        bigtableRepository.forEachNewShortId(cursor - JOURNAL_OVERLAP_MS, this::add);
+        journalCursor.accumulateAndGet(scanStarted, Math::max);
+    }
+
+    /**
+     * The next journal read not started yet, scheduled if needed. Everyone asking
+     * before it starts shares it; it starts no sooner than the minimum interval
+     * after the previous one.
+     */
+    private CompletableFuture<Void> requestRefresh() {
+        synchronized (refreshLock) {
+            if (pendingRefresh == null) {
+                CompletableFuture<Void> refresh = new CompletableFuture<>();
+                long delay = Math.max(0, lastRefreshStarted + minRefreshIntervalMillis - System.currentTimeMillis());
+                try {
+                    refresher.schedule(() -> runRefresh(refresh), delay, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    return CompletableFuture.failedFuture(e);
+                }
+                pendingRefresh = refresh;
+            }
+            return pendingRefresh;
+        }
+    }
+
+    private void runRefresh(CompletableFuture<Void> refresh) {
+        synchronized (refreshLock) {
+            // Whoever asks from now on may have missed this read, and waits for the next one
+            pendingRefresh = null;
+            lastRefreshStarted = System.currentTimeMillis();
+        }
+        try {
+            refresh();
+            refresh.complete(null);
+        } catch (Exception e) {
+            System.err.println("Error refreshing short ID filter: " + e.getMessage());
+            refresh.completeExceptionally(e);
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            System.err.println("Error rebuilding short ID filter: " + e.getMessage());
+        }
+    }
+}
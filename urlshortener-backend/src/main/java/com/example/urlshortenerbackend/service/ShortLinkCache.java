@@ -0,0 +1,114 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.model.UrlEntity;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of short ID -> resolved link.
+ *
+ * Caffeine uses W-TinyLFU admission and eviction, so the few viral links that
+ * take most of the redirect traffic stay resident while one-off lookups do not
+ * push them out. Only existing links are cached; misses always go to storage.
+ *
+ * Cached entities are shared between callers and must be treated as read-only.
+ * They hold what a redirect needs (see BigtableRepository#getLinkTarget), not
+ * the tag, click count or access time.
+ *
+ * Values are held as futures so that concurrent misses for the same ID share one
+ * storage read, while the read itself runs outside Caffeine's internal locks
+ * (a blocking load inside a compute would pin a virtual thread to its carrier),
+ * and so that the redirect path can wait for a miss without blocking at all.
+ */
+@Component
+public class ShortLinkCache {
+
+    private final AsyncCache<String, UrlEntity> cache;
+
+    public ShortLinkCache(@Value("${app.cache.short-links.maximum-size:10000}") long maximumSize,
+                          @Value("${app.cache.short-links.expire-after-write-seconds:300}") long expireAfterWriteSeconds,
+                          MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .buildAsync();
+
+        // Exposes hit/miss/eviction counts under cache.* with cache=short_links
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "short_links");
+    }
+
+    /**
+     * Returns the cached link for the ID, loading it with the given loader on a miss.
+     * Absent links are not cached.
+     */
+    public Optional<UrlEntity> get(String id, Function<String, Optional<UrlEntity>> loader) {
+        try {
+            return getAsync(id, key -> CompletableFuture.completedFuture(loader.apply(key))).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #get}: a hit completes immediately, a miss
+     * completes when the loader's future does.
+     */
+    public CompletableFuture<Optional<UrlEntity>> getAsync(String id,
+                                                           Function<String, CompletableFuture<Optional<UrlEntity>>> loader) {
+        CompletableFuture<UrlEntity> cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached.thenApply(Optional::ofNullable);
+        }
+
+        // Publish a pending future so concurrent misses wait on this load instead of starting their own
+        CompletableFuture<UrlEntity> loading = new CompletableFuture<>();
+        CompletableFuture<UrlEntity> existing = cache.asMap().putIfAbsent(id, loading);
+        if (existing != null) {
+            return existing.thenApply(Optional::ofNullable);
+        }
+
+        CompletableFuture<Optional<UrlEntity>> loaded;
+        try {
+            loaded = loader.apply(id);
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        return loaded.whenComplete((result, error) -> {
+            if (error != null || result.isEmpty()) {
+                cache.asMap().remove(id, loading);
+            }
+            if (error != null) {
+                loading.completeExceptionally(error);
+            } else {
+                loading.complete(result.orElse(null));
+            }
+        });
+    }
+
+    /**
+     * The cached link, without loading it; null if the ID is not cached or its
+     * load has not completed.
+     */
+    public UrlEntity getIfPresent(String id) {
+        CompletableFuture<UrlEntity> cached = cache.getIfPresent(id);
+        return cached != null && cached.isDone() && !cached.isCompletedExceptionally() ? cached.join() : null;
+    }
+
+    public void invalidate(String id) {
+        cache.synchronous().invalidate(id);
+    }
+}
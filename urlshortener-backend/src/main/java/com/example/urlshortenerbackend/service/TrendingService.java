@@ -0,0 +1,255 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.model.UrlEntity;
+import com.example.urlshortenerbackend.repository.BigtableRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Links that are hot right now: the most-clicked links over the last hour or
+ * less, fed by redirects.
+ *
+ * Public links are counted in one {@link TrendingSketch}, and every link also in
+ * a smaller sketch of its owner, private links included. Owner sketches are kept
+ * for a bounded number of owners, rarely clicked owners being evicted first, so
+ * memory is fixed whatever the number of links and owners. A redirect costs
+ * two constant-time sketch updates and no I/O.
+ *
+ * Each instance only counts the redirects it serves. Its sketches are
+ * snapshotted to Bigtable periodically and on shutdown, in rows of its own, and
+ * a view is answered from the local sketch plus the latest snapshots of every
+ * other instance, read at most once per snapshot interval per view. The lists
+ * are thus global, lagging by up to that interval, and a restarted instance
+ * (which gets a new tag) still sees what it counted before through its old
+ * snapshots until they leave the window. Snapshots left by stopped instances
+ * are deleted on startup.
+ *
+ * Ranking a view reads the link of each candidate to leave out deleted and
+ * hidden links; links not in the link cache are read for at most
+ * max-link-reads candidates per call, so a list of stale IDs cannot turn one
+ * request into many storage reads.
+ */
+@Service
+public class TrendingService {
+
+    private static final String PUBLIC_SCOPE = "pub";
+    private static final String OWNER_SCOPE_PREFIX = "own#";
+
+    // Sketch sizes: the public one is shared by all links, owner ones only see an owner's links
+    private static final int PUBLIC_WIDTH = 4096;
+    private static final int OWNER_WIDTH = 64;
+    private static final int OWNER_CANDIDATES = 20;
+
+    // Tells this process's snapshot rows apart from those of other instances
+    private static final String INSTANCE_TAG = Long.toString(ThreadLocalRandom.current().nextLong(36L * 36 * 36 * 36 * 36 * 36), 36);
+
+    private final BigtableRepository bigtableRepository;
+    private final ShortLinkCache shortLinkCache;
+    private final int candidates;
+    private final int maxLinkReads;
+    private final long sliceMillis;
+    private final int slices;
+    private final long snapshotIntervalSeconds;
+
+    private final TrendingSketch publicLinks;
+    private final Cache<String, TrendingSketch> ownerLinks;
+    // Per view, the snapshots of the other instances merged into one sketch
+    private final AsyncCache<String, TrendingSketch> otherInstances;
+
+    private final ScheduledExecutorService scheduler;
+
+    public TrendingService(BigtableRepository bigtableRepository,
+                           ShortLinkCache shortLinkCache,
+                           @Value("${app.trending.candidates:100}") int candidates,
+                           @Value("${app.trending.slice-seconds:300}") long sliceSeconds,
+                           @Value("${app.trending.slices:12}") int slices,
+                           @Value("${app.trending.max-owners:1000}") long maxOwners,
+                           @Value("${app.trending.snapshot-interval-seconds:60}") long snapshotIntervalSeconds,
+                           @Value("${app.trending.max-link-reads:10}") int maxLinkReads) {
+        this.bigtableRepository = bigtableRepository;
+        this.shortLinkCache = shortLinkCache;
+        this.candidates = candidates;
+        this.maxLinkReads = maxLinkReads;
+        this.sliceMillis = TimeUnit.SECONDS.toMillis(sliceSeconds);
+        this.slices = slices;
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+
+        this.publicLinks = new TrendingSketch(PUBLIC_WIDTH, candidates, sliceMillis, slices);
+        this.ownerLinks = Caffeine.newBuilder()
+                .maximumSize(maxOwners)
+                .build();
+        this.otherInstances = Caffeine.newBuilder()
+                .maximumSize(maxOwners + 1)
+                .expireAfterWrite(Duration.ofSeconds(snapshotIntervalSeconds))
+                .buildAsync();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trending-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.execute(this::deleteStaleSnapshots);
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalSeconds, snapshotIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        snapshotQuietly();
+    }
+
+    /**
+     * Counts a redirect to the link. Constant time and no I/O; safe to call on the
+     * request thread.
+     */
+    public void recordClick(UrlEntity link) {
+        long now = System.currentTimeMillis();
+        if (!link.isPrivate()) {
+            publicLinks.record(link.getId(), now);
+        }
+        if (link.getOwnerId() != null) {
+            ownerLinks.get(link.getOwnerId(), owner -> newOwnerSketch()).record(link.getId(), now);
+        }
+    }
+
+    /**
+     * The most-clicked links of the last minutes, across all instances, most
+     * clicks first. Counts are estimates that may be slightly high. Links that
+     * have been deleted, or that no longer belong in the view, are left out.
+     *
+     * @param ownerId The owner whose links to rank, or null for public links
+     * @param minutes Length of the window, rounded up to whole slices and capped at the tracked period
+     * @param limit   Maximum number of links
+     * @return id, original_url and clicks of each link
+     */
+    public List<Map<String, Object>> getTrending(String ownerId, int minutes, int limit) {
+        String scope = ownerId == null ? PUBLIC_SCOPE : OWNER_SCOPE_PREFIX + ownerId;
+        TrendingSketch local = ownerId == null ? publicLinks : ownerLinks.getIfPresent(ownerId);
+        TrendingSketch others = otherInstances.get(scope, this::loadOtherInstances).join();
+
+        long now = System.currentTimeMillis();
+        long windowMillis = TimeUnit.MINUTES.toMillis(Math.max(1, minutes));
+        // Over-fetch to make up for candidates that are skipped below
+        int fetch = Math.max(limit, candidates);
+        Set<String> seen = new HashSet<>();
+        List<TrendingSketch.Trend> ranked = new ArrayList<>();
+        for (TrendingSketch sketch : local == null ? List.of(others) : List.of(local, others)) {
+            for (TrendingSketch.Trend trend : sketch.top(fetch, windowMillis, now)) {
+                if (seen.add(trend.id())) {
+                    long clicks = others.clicks(trend.id(), windowMillis, now)
+                            + (local == null ? 0 : local.clicks(trend.id(), windowMillis, now));
+                    ranked.add(new TrendingSketch.Trend(trend.id(), clicks));
+                }
+            }
+        }
+        ranked.sort((a, b) -> Long.compare(b.clicks(), a.clicks()));
+
+        List<Map<String, Object>> trending = new ArrayList<>();
+        int linkReads = 0;
+        for (TrendingSketch.Trend trend : ranked) {
+            if (trending.size() == limit) {
+                break;
+            }
+            UrlEntity link = shortLinkCache.getIfPresent(trend.id());
+            if (link == null && linkReads < maxLinkReads) {
+                linkReads++;
+                link = shortLinkCache.get(trend.id(), bigtableRepository::getLinkTarget).orElse(null);
+            }
+            boolean visible = link != null
+                    && (ownerId == null ? !link.isPrivate() : ownerId.equals(link.getOwnerId()));
+            if (visible) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("id", trend.id());
+                entry.put("original_url", link.getOriginalUrl());
+                entry.put("clicks", trend.clicks());
+                trending.add(entry);
+            }
+        }
+        return trending;
+    }
+
+    // Longest window that can be asked for, in minutes
+    public long maxWindowMinutes() {
+        return TimeUnit.MILLISECONDS.toMinutes(publicLinks.maxWindowMillis());
+    }
+
+    private TrendingSketch newOwnerSketch() {
+        return new TrendingSketch(OWNER_WIDTH, OWNER_CANDIDATES, sliceMillis, slices);
+    }
+
+    // The snapshots of a view written by other instances, including this one's earlier runs
+    private TrendingSketch loadOtherInstances(String scope) {
+        TrendingSketch merged = scope.equals(PUBLIC_SCOPE)
+                ? new TrendingSketch(PUBLIC_WIDTH, candidates, sliceMillis, slices)
+                : newOwnerSketch();
+        try {
+            long now = System.currentTimeMillis();
+            bigtableRepository.loadTrendingSnapshots(scope).forEach((instance, snapshot) -> {
+                if (!instance.equals(INSTANCE_TAG)) {
+                    merged.restore(snapshot, now);
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Error reading trending snapshots of " + scope + ": " + e.getMessage());
+        }
+        return merged;
+    }
+
+    // Snapshots not rewritten within the tracked period only hold clicks that have left every window
+    private void deleteStaleSnapshots() {
+        try {
+            long deleted = bigtableRepository.deleteTrendingSnapshotsBefore(
+                    System.currentTimeMillis() - publicLinks.maxWindowMillis());
+            System.out.println("Deleted " + deleted + " stale trending snapshots");
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            System.err.println("Error deleting stale trending snapshots: " + e.getMessage());
+        }
+    }
+
+    // Views without clicks in the window are skipped; their old snapshot only holds clicks that have left it
+    private void snapshotQuietly() {
+        try {
+            long now = System.currentTimeMillis();
+            Map<String, byte[]> snapshots = new HashMap<>();
+            addSnapshot(snapshots, PUBLIC_SCOPE, publicLinks, now);
+            ownerLinks.asMap().forEach((owner, sketch) ->
+                    addSnapshot(snapshots, OWNER_SCOPE_PREFIX + owner, sketch, now));
+            bigtableRepository.saveTrendingSnapshots(INSTANCE_TAG, snapshots);
+        } catch (Exception e) {
+            System.err.println("Error writing trending snapshots: " + e.getMessage());
+        }
+    }
+
+    private static void addSnapshot(Map<String, byte[]> snapshots, String scope, TrendingSketch sketch, long now) {
+        byte[] snapshot = sketch.snapshot(now);
+        if (snapshot.length > 0) {
+            snapshots.put(scope, snapshot);
+        }
+    }
+}
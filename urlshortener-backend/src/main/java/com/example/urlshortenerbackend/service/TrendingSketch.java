@@ -0,0 +1,301 @@
+package com.example.urlshortenerbackend.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Approximate most-clicked links over a sliding window, in fixed memory.
+ *
+ * Time is cut into slices held in a ring, so the window slides one slice at a
+ * time and old clicks drop out by reusing the oldest slice. Each slice counts
+ * clicks in a Count-Min sketch (conservative update) and keeps the links with
+ * the highest estimates in a bounded min-heap. A click costs one sketch update
+ * and one heap adjustment, whatever the number of links. The top links of a
+ * window are the heap candidates of its slices, ranked by their summed
+ * estimates; estimates only ever overcount, by little for the hot links that
+ * matter here.
+ *
+ * Thread-safe; every method locks the instance.
+ */
+final class TrendingSketch {
+
+    record Trend(String id, long clicks) {
+    }
+
+    private static final int DEPTH = 4;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final int width;            // counters per sketch row, a power of two
+    private final int capacity;         // candidates kept per slice
+    private final long sliceMillis;
+    private final Slice[] slices;
+
+    private final class Slice {
+        long start = Long.MIN_VALUE;    // epoch millis; MIN_VALUE while unused
+        final int[] counters = new int[DEPTH * width];
+
+        // Min-heap of candidates by estimate, with each candidate's heap position
+        final String[] ids = new String[capacity];
+        final long[] estimates = new long[capacity];
+        final Map<String, Integer> positions = new HashMap<>();
+        int size;
+
+        void reset(long start) {
+            this.start = start;
+            Arrays.fill(counters, 0);
+            Arrays.fill(ids, 0, size, null);
+            positions.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * @param width       Counters per sketch row, rounded up to a power of two
+     * @param capacity    Candidate links kept per slice, at least the largest top list asked for
+     * @param sliceMillis Length of a slice
+     * @param sliceCount  Slices in the ring; the longest window is sliceCount slices
+     */
+    TrendingSketch(int width, int capacity, long sliceMillis, int sliceCount) {
+        this.width = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.capacity = capacity;
+        this.sliceMillis = sliceMillis;
+        this.slices = new Slice[sliceCount];
+        for (int i = 0; i < sliceCount; i++) {
+            slices[i] = new Slice();
+        }
+    }
+
+    long maxWindowMillis() {
+        return sliceMillis * slices.length;
+    }
+
+    synchronized void record(String id, long nowMillis) {
+        add(slice(nowMillis), id, 1);
+    }
+
+    /**
+     * The most-clicked links of the window ending now, most clicks first.
+     *
+     * @param windowMillis Rounded up to whole slices, the current one included
+     */
+    synchronized List<Trend> top(int limit, long windowMillis, long nowMillis) {
+        List<Slice> live = window(windowMillis, nowMillis);
+        Set<String> candidates = new HashSet<>();
+        for (Slice slice : live) {
+            candidates.addAll(slice.positions.keySet());
+        }
+
+        List<Trend> trends = new ArrayList<>(candidates.size());
+        for (String id : candidates) {
+            long clicks = 0;
+            for (Slice slice : live) {
+                clicks += estimate(slice, id);
+            }
+            trends.add(new Trend(id, clicks));
+        }
+        trends.sort((a, b) -> Long.compare(b.clicks(), a.clicks()));
+        return trends.size() > limit ? new ArrayList<>(trends.subList(0, limit)) : trends;
+    }
+
+    /**
+     * Estimated clicks of one link over the window ending now, whether or not it
+     * is a candidate; used to add up the counts of several sketches.
+     */
+    synchronized long clicks(String id, long windowMillis, long nowMillis) {
+        long clicks = 0;
+        for (Slice slice : window(windowMillis, nowMillis)) {
+            clicks += estimate(slice, id);
+        }
+        return clicks;
+    }
+
+    /**
+     * The candidates of every slice still in the ring with their estimates; the
+     * sketch counters themselves are not kept. Empty if no slice has clicks.
+     */
+    synchronized byte[] snapshot(long nowMillis) {
+        long oldestStart = sliceStart(nowMillis) - (slices.length - 1) * sliceMillis;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(sliceMillis);
+            for (Slice slice : slices) {
+                if (slice.start < oldestStart || slice.size == 0) {
+                    continue;
+                }
+                out.writeLong(slice.start);
+                out.writeInt(slice.size);
+                for (int i = 0; i < slice.size; i++) {
+                    out.writeUTF(slice.ids[i]);
+                    out.writeLong(slice.estimates[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);   // not thrown by an in-memory stream
+        }
+        return bytes.size() > Integer.BYTES + Long.BYTES ? bytes.toByteArray() : new byte[0];
+    }
+
+    /**
+     * Adds the candidates of a {@link #snapshot} to the slices they came from, for
+     * slices still inside the window. Snapshots taken with another slice length,
+     * or that cannot be read, are ignored.
+     */
+    synchronized void restore(byte[] snapshot, long nowMillis) {
+        if (snapshot.length == 0) {
+            return;
+        }
+        long currentStart = sliceStart(nowMillis);
+        long oldestStart = currentStart - (slices.length - 1) * sliceMillis;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            if (in.readInt() != SNAPSHOT_VERSION || in.readLong() != sliceMillis) {
+                return;
+            }
+            while (in.available() > 0) {
+                long start = in.readLong();
+                int size = in.readInt();
+                boolean inWindow = start >= oldestStart && start <= currentStart && start % sliceMillis == 0;
+                for (int i = 0; i < size; i++) {
+                    String id = in.readUTF();
+                    long clicks = in.readLong();
+                    if (inWindow) {
+                        add(slice(start), id, clicks);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable trending snapshot: " + e.getMessage());
+        }
+    }
+
+    // Slices of the window ending now, rounded up to whole slices, the current one included
+    private List<Slice> window(long windowMillis, long nowMillis) {
+        long currentStart = sliceStart(nowMillis);
+        long count = Math.max(1, Math.min(slices.length, (windowMillis + sliceMillis - 1) / sliceMillis));
+        long oldestStart = currentStart - (count - 1) * sliceMillis;
+
+        List<Slice> live = new ArrayList<>();
+        for (Slice slice : slices) {
+            if (slice.start >= oldestStart && slice.start <= currentStart) {
+                live.add(slice);
+            }
+        }
+        return live;
+    }
+
+    // The slice for a time, taking over the ring position of a slice that has left the window
+    private Slice slice(long millis) {
+        long start = sliceStart(millis);
+        Slice slice = slices[(int) Math.floorMod(Math.floorDiv(millis, sliceMillis), (long) slices.length)];
+        if (slice.start != start) {
+            slice.reset(start);
+        }
+        return slice;
+    }
+
+    private long sliceStart(long millis) {
+        return Math.floorDiv(millis, sliceMillis) * sliceMillis;
+    }
+
+    // Conservative update: only the counters at the current minimum grow, which keeps overcounting low
+    private void add(Slice slice, String id, long clicks) {
+        int hash = id.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, slice.counters[index(row, hash)]);
+        }
+        int updated = (int) Math.min(Integer.MAX_VALUE, estimate + clicks);
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(row, hash);
+            slice.counters[index] = Math.max(slice.counters[index], updated);
+        }
+        offer(slice, id, updated);
+    }
+
+    private long estimate(Slice slice, String id) {
+        int hash = id.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, slice.counters[index(row, hash)]);
+        }
+        return estimate;
+    }
+
+    // Counter of a row: double hashing over a mixed 64-bit hash
+    private int index(int row, int hash) {
+        long mixed = hash * 0x9E3779B97F4A7C15L;
+        mixed ^= mixed >>> 32;
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+        return row * width + ((h1 + row * h2) & (width - 1));
+    }
+
+    // Keeps the link among the slice's candidates if its estimate beats the smallest one
+    private void offer(Slice slice, String id, long estimate) {
+        Integer position = slice.positions.get(id);
+        if (position != null) {
+            slice.estimates[position] = estimate;
+            siftDown(slice, position);
+        } else if (slice.size < capacity) {
+            int last = slice.size++;
+            slice.ids[last] = id;
+            slice.estimates[last] = estimate;
+            slice.positions.put(id, last);
+            siftUp(slice, last);
+        } else if (estimate > slice.estimates[0]) {
+            slice.positions.remove(slice.ids[0]);
+            slice.ids[0] = id;
+            slice.estimates[0] = estimate;
+            slice.positions.put(id, 0);
+            siftDown(slice, 0);
+        }
+    }
+
+    private void siftUp(Slice slice, int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (slice.estimates[parent] <= slice.estimates[position]) {
+                return;
+            }
+            swap(slice, parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(Slice slice, int position) {
+        while (true) {
+            int smallest = position;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < slice.size; child++) {
+                if (slice.estimates[child] < slice.estimates[smallest]) {
+                    smallest = child;
+                }
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(slice, smallest, position);
+            position = smallest;
+        }
+    }
+
+    private void swap(Slice slice, int a, int b) {
+        String id = slice.ids[a];
+        long estimate = slice.estimates[a];
+        slice.ids[a] = slice.ids[b];
+        slice.estimates[a] = slice.estimates[b];
+        slice.ids[b] = id;
+        slice.estimates[b] = estimate;
+        slice.positions.put(slice.ids[a], a);
+        slice.positions.put(slice.ids[b], b);
+    }
+}
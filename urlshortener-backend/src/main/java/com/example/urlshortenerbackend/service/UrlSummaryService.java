@@ -39,7 +39,7 @@ public class UrlSummaryService {
         }
 
         // No cached analysis, need to generate one
-        Optional<UrlEntity> urlEntityOpt = bigtableRepository.getUrlById(shortId);
+        Optional<UrlEntity> urlEntityOpt = bigtableRepository.getLinkTarget(shortId);
         if (urlEntityOpt.isEmpty()) {
             result.put("error", "URL not found");
             return result;
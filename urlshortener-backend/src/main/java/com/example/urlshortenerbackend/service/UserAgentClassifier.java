@@ -0,0 +1,240 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.model.UserAgentInfo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+import static com.example.urlshortenerbackend.model.UserAgentInfo.*;
+
+/**
+ * Classifies User-Agent strings into device type, browser (with major version) and OS.
+ *
+ * All tokens of interest are compiled into one Aho-Corasick automaton, so a UA is
+ * scanned once, case-insensitively, without lower-casing or copying it. Real traffic
+ * has few distinct UAs, so results are also kept in a bounded cache keyed by the
+ * raw header value.
+ */
+@Component
+public class UserAgentClassifier {
+
+    // Token ids double as bit positions in the match mask
+    private static final int T_MOBILE = 0, T_TABLET = 1, T_EDG = 2, T_EDGE = 3, T_FIREFOX = 4, T_CHROME = 5,
+            T_CHROMIUM = 6, T_SAFARI = 7, T_TRIDENT = 8, T_MSIE = 9, T_VERSION = 10, T_RV = 11, T_WINDOWS = 12,
+            T_IPHONE = 13, T_IPAD = 14, T_IPOD = 15, T_ANDROID = 16, T_MAC_OS_X = 17, T_CROS = 18, T_LINUX = 19;
+
+    private static final String[] TOKENS = {
+            "mobile", "tablet", "edg/", "edge/", "firefox/", "chrome/",
+            "chromium/", "safari/", "trident/", "msie ", "version/", "rv:", "windows",
+            "iphone", "ipad", "ipod", "android", "mac os x", "cros", "linux"
+    };
+
+    private static final int ALPHABET = 128;
+
+    // Full DFA: next state for every (state, lower-cased ASCII char), plus matched token mask per state
+    private static final int[][] TRANSITIONS;
+    private static final int[] OUTPUTS;
+
+    static {
+        int maxStates = 1;
+        for (String token : TOKENS) {
+            maxStates += token.length();
+        }
+        int[][] transitions = new int[maxStates][ALPHABET];
+        for (int[] row : transitions) {
+            Arrays.fill(row, -1);
+        }
+        int[] outputs = new int[maxStates];
+        int states = 1;
+
+        // Trie of all tokens
+        for (int t = 0; t < TOKENS.length; t++) {
+            int state = 0;
+            for (char c : TOKENS[t].toCharArray()) {
+                if (transitions[state][c] < 0) {
+                    transitions[state][c] = states++;
+                }
+                state = transitions[state][c];
+            }
+            outputs[state] |= 1 << t;
+        }
+
+        // Breadth-first failure links, folded directly into the transition table
+        int[] failure = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            if (transitions[0][c] < 0) {
+                transitions[0][c] = 0;
+            } else {
+                failure[transitions[0][c]] = 0;
+                queue.add(transitions[0][c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            outputs[state] |= outputs[failure[state]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = transitions[state][c];
+                if (next < 0) {
+                    transitions[state][c] = transitions[failure[state]][c];
+                } else {
+                    failure[next] = transitions[failure[state]][c];
+                    queue.add(next);
+                }
+            }
+        }
+
+        TRANSITIONS = Arrays.copyOf(transitions, states);
+        OUTPUTS = Arrays.copyOf(outputs, states);
+    }
+
+    private final Cache<String, UserAgentInfo> cache;
+
+    public UserAgentClassifier(@Value("${app.user-agent.cache-size:2000}") long cacheSize,
+                               MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user_agents");
+    }
+
+    /**
+     * Classifies a User-Agent header, using the cache. A null header is "Unknown" throughout.
+     */
+    public UserAgentInfo classify(String userAgent) {
+        if (userAgent == null) {
+            return UserAgentInfo.UNKNOWN;
+        }
+        return cache.get(userAgent, UserAgentClassifier::parse);
+    }
+
+    /**
+     * Uncached single-pass classification.
+     */
+    public static UserAgentInfo parse(String userAgent) {
+        if (userAgent == null) {
+            return UserAgentInfo.UNKNOWN;
+        }
+
+        int matched = 0;
+        // Index just past the first occurrence of each token, for version extraction
+        int[] firstEnd = new int[TOKENS.length];
+
+        int state = 0;
+        int length = userAgent.length();
+        for (int i = 0; i < length; i++) {
+            char c = userAgent.charAt(i);
+            if (c >= ALPHABET) {
+                state = 0;
+                continue;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            state = TRANSITIONS[state][c];
+
+            int output = OUTPUTS[state];
+            int fresh = output & ~matched;
+            if (fresh != 0) {
+                matched |= fresh;
+                while (fresh != 0) {
+                    int token = Integer.numberOfTrailingZeros(fresh);
+                    firstEnd[token] = i + 1;
+                    fresh &= fresh - 1;
+                }
+            }
+        }
+
+        return new UserAgentInfo(deviceType(matched), browser(matched),
+                browserVersion(userAgent, matched, firstEnd), os(matched));
+    }
+
+    private static boolean has(int matched, int token) {
+        return (matched & (1 << token)) != 0;
+    }
+
+    // Same precedence as the original contains() chain
+    private static int deviceType(int matched) {
+        if (has(matched, T_MOBILE)) {
+            return DEVICE_MOBILE;
+        } else if (has(matched, T_TABLET)) {
+            return DEVICE_TABLET;
+        }
+        return DEVICE_DESKTOP;
+    }
+
+    private static int browser(int matched) {
+        if (has(matched, T_EDG) || has(matched, T_EDGE)) {
+            return BROWSER_EDGE;
+        } else if (has(matched, T_FIREFOX)) {
+            return BROWSER_FIREFOX;
+        } else if (has(matched, T_SAFARI) && has(matched, T_CHROME) && !has(matched, T_CHROMIUM)) {
+            return BROWSER_CHROME;
+        } else if (has(matched, T_SAFARI) && !has(matched, T_CHROME)) {
+            return BROWSER_SAFARI;
+        } else if (has(matched, T_TRIDENT) || has(matched, T_MSIE)) {
+            return BROWSER_IE;
+        }
+        return BROWSER_OTHER;
+    }
+
+    private static int os(int matched) {
+        if (has(matched, T_WINDOWS)) {
+            return OS_WINDOWS;
+        } else if (has(matched, T_IPHONE) || has(matched, T_IPAD) || has(matched, T_IPOD)) {
+            return OS_IOS;   // iOS UAs also say "Mac OS X"
+        } else if (has(matched, T_ANDROID)) {
+            return OS_ANDROID;   // Android UAs also say "Linux"
+        } else if (has(matched, T_CROS)) {
+            return OS_CHROME_OS;
+        } else if (has(matched, T_MAC_OS_X)) {
+            return OS_MACOS;
+        } else if (has(matched, T_LINUX)) {
+            return OS_LINUX;
+        }
+        return OS_OTHER;
+    }
+
+    private static int browserVersion(String userAgent, int matched, int[] firstEnd) {
+        switch (browser(matched)) {
+            case BROWSER_EDGE:
+                return readNumber(userAgent, has(matched, T_EDG) ? firstEnd[T_EDG] : firstEnd[T_EDGE]);
+            case BROWSER_FIREFOX:
+                return readNumber(userAgent, firstEnd[T_FIREFOX]);
+            case BROWSER_CHROME:
+                return readNumber(userAgent, firstEnd[T_CHROME]);
+            case BROWSER_SAFARI:
+                return has(matched, T_VERSION) ? readNumber(userAgent, firstEnd[T_VERSION]) : -1;
+            case BROWSER_IE:
+                if (has(matched, T_MSIE)) {
+                    return readNumber(userAgent, firstEnd[T_MSIE]);
+                }
+                return has(matched, T_RV) ? readNumber(userAgent, firstEnd[T_RV]) : -1;
+            default:
+                return -1;
+        }
+    }
+
+    // Parses the decimal digits starting at index, -1 if there are none
+    private static int readNumber(String text, int index) {
+        int value = 0;
+        int i = index;
+        while (i < text.length() && i - index < 6) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            i++;
+        }
+        return i == index ? -1 : value;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.urlshortenerbackend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for the background pools that make blocking Bigtable calls.
+ *
+ * Follows spring.threads.virtual.enabled, the same switch that moves request
+ * handling onto virtual threads: when it is on (Java 21+, see the java21 Maven
+ * profile) workers are virtual threads, otherwise named daemon platform threads.
+ * Pool sizes still bound how much work runs at once either way.
+ */
+@Component
+public class WorkerThreads {
+
+    private final boolean virtual;
+
+    public WorkerThreads(@Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    public ThreadFactory factory(String namePrefix) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(namePrefix).getVirtualThreadFactory();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+}
@@ -3,7 +3,7 @@ package com.example.urlshortenerbackend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "app.short-id.secret=1")
 class UrlshortenerBackendApplicationTests {
 
     @Test
@@ -0,0 +1,209 @@
+package com.example.urlshortenerbackend.benchmark;
+
+import com.example.urlshortenerbackend.model.ClickEvent;
+import com.example.urlshortenerbackend.repository.ClickEventKeys;
+import com.example.urlshortenerbackend.repository.ClickRecordCodec;
+import com.example.urlshortenerbackend.repository.ClickStreamAggregator;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.cloud.bigtable.data.v2.models.RowCell;
+import com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to aggregate one link's click rows, as they come off the Bigtable stream,
+ * into per-week counts and device, browser and country distributions: the old
+ * map-per-click path against {@link ClickStreamAggregator}, over rows of string
+ * cells and over binary click records ({@link ClickRecordCodec}).
+ *
+ * Add {@code -prof gc} through the runner options to compare allocation per click.
+ * From urlshortener-backend after {@code mvn test-compile}:
+ * <pre>
+ * mvn exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.urlshortenerbackend.benchmark.ClickAggregationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClickAggregationBenchmark {
+
+    private static final String SHORT_ID = "abc123";
+    private static final ZoneId CST_ZONE = ZoneId.of("America/Chicago");
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private static final String[] DEVICES = {"Desktop", "Mobile", "Tablet"};
+    private static final String[] BROWSERS = {"Chrome", "Safari", "Firefox", "Edge", "Other"};
+    private static final String[] COUNTRIES = {"United States", "India", "Germany", "Brazil", "Japan", "Unknown"};
+
+    @Param({"100000"})
+    public int clicks;
+
+    private List<Row> rows;
+    private List<Row> recordRows;
+    private final ClickStreamAggregator aggregator = new ClickStreamAggregator();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        long twelveWeeks = 84 * DAY_MILLIS;
+
+        List<Long> times = new ArrayList<>(clicks);
+        for (int i = 0; i < clicks; i++) {
+            times.add(now - (long) (random.nextDouble() * twelveWeeks));
+        }
+        times.sort(null);
+
+        // As the stream returns them: key order, cells ordered by qualifier
+        rows = new ArrayList<>(clicks);
+        recordRows = new ArrayList<>(clicks);
+        for (long time : times) {
+            ByteString key = ByteString.copyFromUtf8(ClickEventKeys.newKey(SHORT_ID, time));
+            String browser = BROWSERS[random.nextInt(BROWSERS.length)];
+            String country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+            String device = DEVICES[random.nextInt(DEVICES.length)];
+            rows.add(Row.create(key, List.of(
+                    cell("browser", browser),
+                    cell("country", country),
+                    cell("device_type", device),
+                    cell("timestamp", Instant.ofEpochMilli(time).atZone(CST_ZONE).toString()))));
+
+            ClickEvent event = new ClickEvent(SHORT_ID, time, "203.0.113.7", null, null)
+                    .withEnrichment(country, device, browser, "Windows");
+            recordRows.add(Row.create(key, List.of(RowCell.create("click_events", ByteString.copyFromUtf8("record"),
+                    0L, List.of(), ClickRecordCodec.encode(event, 0x1234L, 0)))));
+        }
+    }
+
+    @Benchmark
+    public void mapsPerClick(Blackhole blackhole) {
+        List<Map<String, String>> clickData = new ArrayList<>();
+        for (Row row : rows) {
+            clickData.add(toClickMap(row));
+        }
+        blackhole.consume(legacyWeeklyCounts(clickData));
+    }
+
+    @Benchmark
+    public void streamingAggregator(Blackhole blackhole) {
+        aggregator.reset(SHORT_ID, 0, Long.MAX_VALUE);
+        for (Row row : rows) {
+            aggregator.add(row);
+        }
+        aggregator.forEach(DAY_MILLIS, (day, dimension, value, count) -> blackhole.consume(count));
+    }
+
+    @Benchmark
+    public void streamingAggregatorRecords(Blackhole blackhole) {
+        aggregator.reset(SHORT_ID, 0, Long.MAX_VALUE);
+        for (Row row : recordRows) {
+            aggregator.add(row);
+        }
+        aggregator.forEach(DAY_MILLIS, (day, dimension, value, count) -> blackhole.consume(count));
+    }
+
+    // Copied from the getClickData row mapping this replaced
+    private static Map<String, String> toClickMap(Row row) {
+        Map<String, String> clickData = new HashMap<>();
+        clickData.put("timestamp", row.getCells("click_events", "timestamp").get(0).getValue().toStringUtf8());
+        clickData.put("device_type", row.getCells("click_events", "device_type").get(0).getValue().toStringUtf8());
+        clickData.put("browser", row.getCells("click_events", "browser").get(0).getValue().toStringUtf8());
+        clickData.put("country", row.getCells("click_events", "country").get(0).getValue().toStringUtf8());
+        return clickData;
+    }
+
+    // Copied from the UrlService.getWeeklyAnalytics loop this replaced
+    private static Map<String, Object> legacyWeeklyCounts(List<Map<String, String>> allClickData) {
+        Map<String, Long> clicksPerWeek = new HashMap<>();
+        Map<String, Long> deviceDistribution = new HashMap<>();
+        Map<String, Long> browserDistribution = new HashMap<>();
+        browserDistribution.put("Other", 0L);
+        Map<String, Long> countryDistribution = new HashMap<>();
+
+        for (Map<String, String> click : allClickData) {
+            ZonedDateTime clickTime;
+            try {
+                String timestampStr = click.get("timestamp");
+                if (timestampStr.endsWith("Z")) {
+                    clickTime = Instant.parse(timestampStr).atZone(CST_ZONE);
+                } else {
+                    try {
+                        clickTime = ZonedDateTime.parse(timestampStr);
+                    } catch (DateTimeParseException e) {
+                        try {
+                            clickTime = OffsetDateTime.parse(timestampStr).atZoneSameInstant(CST_ZONE);
+                        } catch (DateTimeParseException ex) {
+                            clickTime = LocalDateTime.parse(timestampStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                                    .atZone(CST_ZONE);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                continue;
+            }
+
+            String weekLabel = clickTime.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY))
+                    .truncatedTo(ChronoUnit.DAYS).toLocalDate().toString();
+            clicksPerWeek.put(weekLabel, clicksPerWeek.getOrDefault(weekLabel, 0L) + 1);
+
+            String device = click.get("device_type");
+            deviceDistribution.put(device, deviceDistribution.getOrDefault(device, 0L) + 1);
+            String browser = click.get("browser");
+            browserDistribution.put(browser, browserDistribution.getOrDefault(browser, 0L) + 1);
+            String country = click.get("country");
+            countryDistribution.put(country, countryDistribution.getOrDefault(country, 0L) + 1);
+        }
+
+        Map<String, Object> analyticsData = new HashMap<>();
+        analyticsData.put("clicks_per_week", clicksPerWeek);
+        analyticsData.put("device_distribution", deviceDistribution);
+        analyticsData.put("browser_distribution", browserDistribution);
+        analyticsData.put("country_distribution", countryDistribution);
+        return analyticsData;
+    }
+
+    private static RowCell cell(String qualifier, String value) {
+        return RowCell.create("click_events", ByteString.copyFromUtf8(qualifier), 0L, List.of(),
+                ByteString.copyFromUtf8(value));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ClickAggregationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.urlshortenerbackend.benchmark;
+
+import com.example.urlshortenerbackend.model.UrlEntity;
+import com.example.urlshortenerbackend.service.ShortLinkCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time to serve a wave of concurrent redirects on a Tomcat-sized platform thread
+ * pool versus one virtual thread per request.
+ *
+ * Each redirect goes through {@link ShortLinkCache}; a share of them miss and
+ * block on a simulated Bigtable readRow. Divide the score by the concurrency for
+ * the cost per redirect.
+ *
+ * The virtual variant needs Java 21. From urlshortener-backend:
+ * <pre>
+ * mvn -Pjava21 test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.urlshortenerbackend.benchmark.RedirectConcurrencyBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedirectConcurrencyBenchmark {
+
+    // server.tomcat.threads.max default
+    private static final int PLATFORM_THREADS = 200;
+    private static final long STORAGE_LATENCY_MS = 5;
+    // One redirect in this many is a cache miss for a link not seen before
+    private static final int MISS_EVERY = 5;
+    private static final int HOT_LINKS = 100;
+
+    @Param({"1000", "10000"})
+    public int concurrency;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    private Executor executor;
+    private ExecutorService platformPool;
+    private ShortLinkCache cache;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("virtual".equals(threads)) {
+            executor = new VirtualThreadTaskExecutor("redirect-");
+        } else {
+            platformPool = Executors.newFixedThreadPool(PLATFORM_THREADS);
+            executor = platformPool;
+        }
+        cache = new ShortLinkCache(100_000, 300, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (platformPool != null) {
+            platformPool.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public void redirects() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            long n = sequence.incrementAndGet();
+            String id = n % MISS_EVERY == 0 ? "new-" + n : "hot-" + (n % HOT_LINKS);
+            executor.execute(() -> {
+                try {
+                    cache.get(id, RedirectConcurrencyBenchmark::readFromStorage);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private static Optional<UrlEntity> readFromStorage(String id) {
+        try {
+            Thread.sleep(STORAGE_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        UrlEntity entity = new UrlEntity();
+        entity.setId(id);
+        entity.setOriginalUrl("https://example.com/" + id);
+        return Optional.of(entity);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RedirectConcurrencyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
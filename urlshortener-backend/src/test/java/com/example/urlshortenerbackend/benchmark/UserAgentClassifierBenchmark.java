@@ -0,0 +1,117 @@
+package com.example.urlshortenerbackend.benchmark;
+
+import com.example.urlshortenerbackend.model.UserAgentInfo;
+import com.example.urlshortenerbackend.service.UserAgentClassifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old contains()-chain UA detection with {@link UserAgentClassifier},
+ * both uncached and cached.
+ *
+ * Run from urlshortener-backend after {@code mvn test-compile}:
+ * <pre>
+ * mvn exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.urlshortenerbackend.benchmark.UserAgentClassifierBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserAgentClassifierBenchmark {
+
+    private static final String[] USER_AGENTS = {
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36",
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36 Edg/124.0.2478.67",
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 17_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Mobile/15E148 Safari/604.1",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.3 Safari/605.1.15",
+            "Mozilla/5.0 (X11; Linux x86_64; rv:125.0) Gecko/20100101 Firefox/125.0",
+            "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/123.0.6312.99 Mobile Safari/537.36",
+            "Mozilla/5.0 (Windows NT 6.1; WOW64; Trident/7.0; rv:11.0) like Gecko",
+            "curl/8.4.0"
+    };
+
+    private UserAgentClassifier classifier;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        classifier = new UserAgentClassifier(2000, new SimpleMeterRegistry());
+    }
+
+    private String nextUserAgent() {
+        String userAgent = USER_AGENTS[next];
+        next = (next + 1) % USER_AGENTS.length;
+        return userAgent;
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        String userAgent = nextUserAgent();
+        blackhole.consume(legacyDeviceType(userAgent));
+        blackhole.consume(legacyBrowser(userAgent));
+    }
+
+    @Benchmark
+    public UserAgentInfo singlePass() {
+        return UserAgentClassifier.parse(nextUserAgent());
+    }
+
+    @Benchmark
+    public UserAgentInfo cached() {
+        return classifier.classify(nextUserAgent());
+    }
+
+    // Copied from the UrlService methods this replaced
+    private static String legacyDeviceType(String userAgent) {
+        if (userAgent.toLowerCase().contains("mobile")) {
+            return "Mobile";
+        } else if (userAgent.toLowerCase().contains("tablet")) {
+            return "Tablet";
+        }
+        return "Desktop";
+    }
+
+    private static String legacyBrowser(String userAgent) {
+        if (userAgent == null) {
+            return "Unknown";
+        }
+        String ua = userAgent.toLowerCase();
+        if (ua.contains("edg/") || ua.contains("edge/")) {
+            return "Edge";
+        } else if (ua.contains("firefox/")) {
+            return "Firefox";
+        } else if (ua.contains("safari/") && ua.contains("chrome/") && !ua.contains("chromium/")) {
+            return "Chrome";
+        } else if (ua.contains("safari/") && !ua.contains("chrome/")) {
+            return "Safari";
+        } else if (ua.contains("trident/") || ua.contains("msie ")) {
+            return "Internet Explorer";
+        }
+        return "Other";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserAgentClassifierBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
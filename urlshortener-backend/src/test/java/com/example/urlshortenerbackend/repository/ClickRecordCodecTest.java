@@ -0,0 +1,158 @@
+package com.example.urlshortenerbackend.repository;
+
+import com.example.urlshortenerbackend.model.ClickEvent;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class ClickRecordCodecTest {
+
+    private static final long TIMESTAMP = 1_700_000_123_456L;
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) Chrome/120.0.0.0 Safari/537.36";
+    private static final String REFERER = "https://news.example.org/story";
+
+    @Test
+    void ipv4ClickWithHashesRoundTrips() {
+        long userAgentHash = ClickRecordCodec.valueHash(USER_AGENT);
+        long refererHash = ClickRecordCodec.valueHash(REFERER);
+        ClickEvent event = click("203.0.113.7", "United States", "Desktop", "Chrome", "Windows");
+
+        ByteString record = ClickRecordCodec.encode(event, userAgentHash, refererHash);
+        ClickEvent decoded = ClickRecordCodec.decode("abc123", record,
+                Map.of(userAgentHash, USER_AGENT, refererHash, REFERER)::get);
+
+        // version + millis + 4 address bytes + 4 codes + flags + 2 hashes
+        assertEquals(35, record.size());
+        assertEquals("abc123", decoded.getShortId());
+        assertEquals(TIMESTAMP, decoded.getTimestamp());
+        assertEquals("203.0.113.7", decoded.getIp());
+        assertEquals("United States", decoded.getCountry());
+        assertEquals("Desktop", decoded.getDeviceType());
+        assertEquals("Chrome", decoded.getBrowser());
+        assertEquals("Windows", decoded.getOs());
+        assertEquals(USER_AGENT, decoded.getUserAgent());
+        assertEquals(REFERER, decoded.getReferer());
+    }
+
+    @Test
+    void ipv6AddressIsStoredAsSixteenBytes() throws Exception {
+        ClickEvent event = click("2001:db8::1", "Germany", "Mobile", "Safari", "iOS");
+
+        ByteString record = ClickRecordCodec.encode(event, 0, 0);
+        ClickEvent decoded = ClickRecordCodec.decode("abc123", record, hash -> fail("no hash was stored"));
+
+        assertEquals(1 + 8 + 1 + 16 + 4 + 1, record.size());
+        assertEquals(InetAddress.getByName("2001:db8::1"), InetAddress.getByName(decoded.getIp()));
+        assertEquals("Germany", decoded.getCountry());
+        assertEquals("iOS", decoded.getOs());
+        assertNull(decoded.getUserAgent());
+        assertNull(decoded.getReferer());
+    }
+
+    @Test
+    void textThatIsNotAnIpIsKeptInline() {
+        for (String ip : new String[]{"unknown", "proxy.internal", "10.0.0", "300.1.2.3", "1.2.3.4.5", "fe80::1%eth0"}) {
+            ClickEvent decoded = roundTrip(click(ip, "Unknown", "Unknown", "Unknown", "Unknown"));
+            assertEquals(ip, decoded.getIp());
+        }
+        assertNull(roundTrip(click(null, "Unknown", "Unknown", "Unknown", "Unknown")).getIp());
+        assertNull(roundTrip(click("", "Unknown", "Unknown", "Unknown", "Unknown")).getIp());
+    }
+
+    @Test
+    void valuesOutsideTheDictionariesAreKeptInline() {
+        ClickEvent event = click("198.51.100.20", "Atlantis", "Smart TV", "Opera", "Plan 9");
+
+        ByteString record = ClickRecordCodec.encode(event, 0, 0);
+        ClickEvent decoded = ClickRecordCodec.decode("abc123", record, hash -> null);
+
+        assertEquals("Atlantis", decoded.getCountry());
+        assertEquals("Smart TV", decoded.getDeviceType());
+        assertEquals("Opera", decoded.getBrowser());
+        assertEquals("Plan 9", decoded.getOs());
+        assertEquals("198.51.100.20", decoded.getIp());
+    }
+
+    @Test
+    void onlyTheHashesGivenAreStored() {
+        long refererHash = ClickRecordCodec.valueHash(REFERER);
+        ClickEvent event = click("203.0.113.7", "France", "Tablet", "Firefox", "Android");
+
+        ByteString record = ClickRecordCodec.encode(event, 0, refererHash);
+        ClickEvent decoded = ClickRecordCodec.decode("abc123", record, Map.of(refererHash, REFERER)::get);
+
+        assertNull(decoded.getUserAgent());
+        assertEquals(REFERER, decoded.getReferer());
+    }
+
+    @Test
+    void browserVersionIsStoredWhenKnown() {
+        long userAgentHash = ClickRecordCodec.valueHash(USER_AGENT);
+        ClickEvent event = new ClickEvent("abc123", TIMESTAMP, "203.0.113.7", USER_AGENT, null)
+                .withEnrichment("United States", "Desktop", "Chrome", 120, "Windows");
+
+        ByteString record = ClickRecordCodec.encode(event, userAgentHash, 0);
+        ClickEvent decoded = ClickRecordCodec.decode("abc123", record, Map.of(userAgentHash, USER_AGENT)::get);
+
+        assertEquals(120, decoded.getBrowserMajorVersion());
+        assertEquals(USER_AGENT, decoded.getUserAgent());
+        assertEquals(-1, roundTrip(click("203.0.113.7", "Unknown", "Desktop", "Chrome", "Windows")).getBrowserMajorVersion());
+        assertEquals(-1, roundTrip(click("203.0.113.7", "Unknown", "Desktop", "Chrome", "Windows")
+                .withEnrichment("Unknown", "Desktop", "Chrome", 123456, "Windows")).getBrowserMajorVersion());
+    }
+
+    @Test
+    void hashesAreStableAndZeroOnlyForMissingValues() {
+        assertEquals(ClickRecordCodec.valueHash(USER_AGENT), ClickRecordCodec.valueHash(USER_AGENT));
+        assertNotEquals(ClickRecordCodec.valueHash(USER_AGENT), ClickRecordCodec.valueHash(REFERER));
+        assertNotEquals(0, ClickRecordCodec.valueHash("x"));
+        assertEquals(0, ClickRecordCodec.valueHash(null));
+        assertEquals(0, ClickRecordCodec.valueHash(""));
+    }
+
+    @Test
+    void fieldsCanBeWalkedWithoutDecoding() {
+        ByteString record = ClickRecordCodec.encode(click("unknown", "Japan", "Mobile", "Opera", "Android"), 0, 0);
+
+        int offset = ClickRecordCodec.firstField(record);
+        String[] values = new String[ClickRecordCodec.FIELD_COUNT];
+        for (int field = 0; field < ClickRecordCodec.FIELD_COUNT; field++) {
+            values[field] = ClickRecordCodec.fieldValue(record, field, offset).toStringUtf8();
+            offset = ClickRecordCodec.nextField(record, offset);
+        }
+
+        assertEquals("Mobile", values[ClickRecordCodec.DEVICE_TYPE]);
+        assertEquals("Opera", values[ClickRecordCodec.BROWSER]);
+        assertEquals("Japan", values[ClickRecordCodec.COUNTRY]);
+        assertEquals("Android", values[ClickRecordCodec.OS]);
+        // The flags byte follows the last field
+        assertEquals(record.size() - 1, offset);
+        assertEquals(TIMESTAMP, ClickRecordCodec.epochMillis(record));
+    }
+
+    @Test
+    void legacyStringCellsAreNotRecords() {
+        assertTrue(ClickRecordCodec.isRecord(ClickRecordCodec.encode(click(null, "Unknown", "Unknown", "Unknown", "Unknown"), 0, 0)));
+        assertFalse(ClickRecordCodec.isRecord(ByteString.copyFromUtf8("2024-03-10T01:30:00-06:00[America/Chicago]")));
+        assertFalse(ClickRecordCodec.isRecord(ByteString.copyFromUtf8("Chrome")));
+        assertEquals(-1, ClickRecordCodec.firstField(ByteString.copyFromUtf8("Desktop")));
+        assertNull(ClickRecordCodec.decode("abc123", ByteString.copyFromUtf8("United States"), hash -> null));
+    }
+
+    private static ClickEvent roundTrip(ClickEvent event) {
+        return ClickRecordCodec.decode(event.getShortId(), ClickRecordCodec.encode(event, 0, 0), hash -> null);
+    }
+
+    private static ClickEvent click(String ip, String country, String deviceType, String browser, String os) {
+        return new ClickEvent("abc123", TIMESTAMP, ip, null, null).withEnrichment(country, deviceType, browser, os);
+    }
+}
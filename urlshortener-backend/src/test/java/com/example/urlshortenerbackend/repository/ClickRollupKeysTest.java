@@ -0,0 +1,147 @@
+package com.example.urlshortenerbackend.repository;
+
+import com.google.cloud.bigtable.data.v2.models.Range.BoundType;
+import com.google.cloud.bigtable.data.v2.models.Range.ByteStringRange;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClickRollupKeysTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    void keysSortByTimeAndRoundTrip() {
+        long millis = LocalDate.of(2024, 3, 10).atTime(13, 45).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+        assertEquals("rollup#abc123#h#2024031013", ClickRollupKeys.hourKey("abc123", millis));
+        assertEquals("rollup#abc123#d#20240310", ClickRollupKeys.dayKey("abc123", millis));
+        assertEquals(millis - 45 * 60_000, ClickRollupKeys.startMillis(ClickRollupKeys.hourKey("abc123", millis)));
+        assertEquals(millis - 13 * HOUR - 45 * 60_000, ClickRollupKeys.startMillis(ClickRollupKeys.dayKey("abc123", millis)));
+        assertTrue(ClickRollupKeys.hourKey("abc123", millis).compareTo(ClickRollupKeys.hourKey("abc123", millis + HOUR)) < 0);
+    }
+
+    @Test
+    void utcDaysAreReadFromDailyRows() {
+        long from = startOfDay(2024, 3, 10, ZoneOffset.UTC);
+        long to = startOfDay(2024, 3, 17, ZoneOffset.UTC);
+
+        List<ByteStringRange> ranges = ClickRollupKeys.covering("abc123", from, to);
+
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), "rollup#abc123#d#20240310", "rollup#abc123#d#20240317");
+        assertCoversEachHourOnce(ranges, from, to);
+    }
+
+    @Test
+    void chicagoDaysAcrossTheDstChangeAddHoursAtEitherEnd() {
+        ZoneId chicago = ZoneId.of("America/Chicago");
+        // Clocks went forward on 2024-03-10, so the window starts at UTC-6 and ends at UTC-5
+        long from = startOfDay(2024, 3, 9, chicago);
+        long to = startOfDay(2024, 3, 12, chicago);
+
+        List<ByteStringRange> ranges = ClickRollupKeys.covering("abc123", from, to);
+
+        assertEquals(3, ranges.size());
+        assertRange(ranges.get(0), "rollup#abc123#h#2024030906", "rollup#abc123#h#2024031000");
+        assertRange(ranges.get(1), "rollup#abc123#d#20240310", "rollup#abc123#d#20240312");
+        assertRange(ranges.get(2), "rollup#abc123#h#2024031200", "rollup#abc123#h#2024031205");
+        assertCoversEachHourOnce(ranges, from, to);
+    }
+
+    @Test
+    void kolkataHalfHourBoundsCountHoursInTheWindowTheyStartIn() {
+        ZoneId kolkata = ZoneId.of("Asia/Kolkata");
+        long from = startOfDay(2024, 3, 10, kolkata);
+        long to = startOfDay(2024, 3, 11, kolkata);
+
+        // 18:30Z to 18:30Z: no whole UTC day, the hours from 19:00Z on
+        List<ByteStringRange> ranges = ClickRollupKeys.covering("abc123", from, to);
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), "rollup#abc123#h#2024030919", "rollup#abc123#h#2024031019");
+        assertCoversEachHourOnce(ranges, from, to);
+
+        long weekEnd = startOfDay(2024, 3, 17, kolkata);
+        List<ByteStringRange> week = ClickRollupKeys.covering("abc123", from, weekEnd);
+        assertEquals(3, week.size());
+        assertRange(week.get(1), "rollup#abc123#d#20240310", "rollup#abc123#d#20240316");
+        assertCoversEachHourOnce(week, from, weekEnd);
+    }
+
+    @Test
+    void windowsWithinAnHourOrDayUseHourlyRows() {
+        long start = startOfDay(2024, 3, 10, ZoneOffset.UTC);
+
+        assertCoversEachHourOnce(ClickRollupKeys.covering("abc123", start + 10 * HOUR, start + 11 * HOUR),
+                start + 10 * HOUR, start + 11 * HOUR);
+        assertCoversEachHourOnce(ClickRollupKeys.covering("abc123", start + HOUR, start + DAY + 2 * HOUR),
+                start + HOUR, start + DAY + 2 * HOUR);
+        assertEquals(1, ClickRollupKeys.covering("abc123", start + HOUR, start + DAY + 2 * HOUR).size());
+    }
+
+    @Test
+    void clickKeysSortByTimeWithinTheirLink() {
+        long millis = 1_710_028_800_123L;
+        String key = ClickEventKeys.newKey("abc123", millis);
+
+        assertTrue(key.startsWith("abc123#1710028800123#"));
+        assertEquals(millis, ClickEventKeys.epochMillis(key));
+        assertTrue(contains(ClickEventKeys.range("abc123", millis, millis + 1), key));
+        assertFalse(contains(ClickEventKeys.range("abc123", millis + 1, millis + 2), key));
+        assertFalse(contains(ClickEventKeys.all("abc12"), key));
+        assertTrue(contains(ClickEventKeys.all("abc123"), key));
+    }
+
+    // Every hour in the window is counted by exactly one row, and no hour outside it by any
+    private static void assertCoversEachHourOnce(List<ByteStringRange> ranges, long from, long to) {
+        long first = ceilHour(from);
+        long last = ceilHour(to);
+        for (long hour = first - 2 * DAY; hour < last + 2 * DAY; hour += HOUR) {
+            int rows = 0;
+            for (ByteStringRange range : ranges) {
+                rows += contains(range, ClickRollupKeys.hourKey("abc123", hour)) ? 1 : 0;
+                rows += contains(range, ClickRollupKeys.dayKey("abc123", hour)) ? 1 : 0;
+            }
+            assertEquals(hour >= first && hour < last ? 1 : 0, rows, "hour starting at " + hour);
+        }
+    }
+
+    private static void assertRange(ByteStringRange range, String start, String end) {
+        assertEquals(BoundType.CLOSED, range.getStartBound());
+        assertEquals(start, range.getStart().toStringUtf8());
+        assertEquals(BoundType.OPEN, range.getEndBound());
+        assertEquals(end, range.getEnd().toStringUtf8());
+    }
+
+    private static boolean contains(ByteStringRange range, String key) {
+        String start = range.getStart().toStringUtf8();
+        String end = range.getEnd().toStringUtf8();
+        boolean afterStart = switch (range.getStartBound()) {
+            case CLOSED -> key.compareTo(start) >= 0;
+            case OPEN -> key.compareTo(start) > 0;
+            default -> true;
+        };
+        boolean beforeEnd = switch (range.getEndBound()) {
+            case CLOSED -> key.compareTo(end) <= 0;
+            case OPEN -> key.compareTo(end) < 0;
+            default -> true;
+        };
+        return afterStart && beforeEnd;
+    }
+
+    private static long startOfDay(int year, int month, int day, ZoneId zone) {
+        return LocalDate.of(year, month, day).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private static long ceilHour(long millis) {
+        return Math.floorDiv(millis + HOUR - 1, HOUR) * HOUR;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.urlshortenerbackend.repository;
+
+import com.example.urlshortenerbackend.model.ClickEvent;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.cloud.bigtable.data.v2.models.RowCell;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClickStreamAggregatorTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 86_400_000L;
+    // 2024-03-10T00:00:00Z
+    private static final long DAY_START = 1_710_028_800_000L;
+
+    private ClickStreamAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new ClickStreamAggregator().reset("abc123", DAY_START, DAY_START + DAY);
+    }
+
+    @Test
+    void parsesEveryLegacyTimestampFormat() {
+        String[] zoned = {
+                "2024-03-10T01:30:00-06:00[America/Chicago]",
+                "2024-03-10T03:30:00.123-05:00[America/Chicago]",
+                "2024-07-04T12:00:00.5-05:00[America/Chicago]",
+                "2025-01-15T08:05:09.123456789Z",
+                "2025-01-15T08:05Z",
+                "2025-01-15T08:05:09Z[UTC]",
+                "2023-11-05T14:30:00+05:30[Asia/Kolkata]",
+                "2000-02-29T23:59:59.999+00:00",
+                "2100-03-01T00:00:00Z",
+                "1969-12-31T23:59:59.500Z"
+        };
+        for (String value : zoned) {
+            assertEquals(ZonedDateTime.parse(value).toInstant().toEpochMilli(), parse(value), value);
+        }
+    }
+
+    @Test
+    void timestampsWithoutAnOffsetAreCentralTime() {
+        ZoneId central = ZoneId.of("America/Chicago");
+        // Standard time, daylight time, and the repeated hour when DST ends (earlier offset)
+        for (String value : new String[]{"2024-01-15T09:30:15.250", "2024-07-04T12:00", "2024-11-03T01:30:00"}) {
+            assertEquals(LocalDateTime.parse(value).atZone(central).toInstant().toEpochMilli(), parse(value), value);
+        }
+    }
+
+    @Test
+    void unreadableTimestampsAreRejected() {
+        for (String value : new String[]{"", "not a timestamp", "2024-13-01T00:00:00Z", "2024-01-01 00:00:00Z",
+                "2024-01-01T24:00:00Z", "2024-01-01T00:00:00X", "2024-01-01T00:00:00+5", "1710028800000"}) {
+            assertEquals(-1, parse(value), value);
+        }
+    }
+
+    @Test
+    void countsRowsInTheNewKeyLayout() {
+        aggregator.add(recordRow(newKey(DAY_START + 10 * 60_000), click(DAY_START + 10 * 60_000, "Mobile", "Safari", "Canada")));
+        aggregator.add(recordRow(newKey(DAY_START + 50 * 60_000), click(DAY_START + 50 * 60_000, "Mobile", "Chrome", "Canada")));
+        aggregator.add(recordRow(newKey(DAY_START + HOUR), click(DAY_START + HOUR, "Desktop", "Chrome", "Atlantis")));
+
+        Map<String, Long> counts = hourly();
+
+        assertEquals(Map.of(
+                counter(0, "TOTAL", null), 2L,
+                counter(0, "DEVICE", "Mobile"), 2L,
+                counter(0, "BROWSER", "Safari"), 1L,
+                counter(0, "BROWSER", "Chrome"), 1L,
+                counter(0, "COUNTRY", "Canada"), 2L,
+                counter(1, "TOTAL", null), 1L,
+                counter(1, "DEVICE", "Desktop"), 1L,
+                counter(1, "BROWSER", "Chrome"), 1L,
+                counter(1, "COUNTRY", "Atlantis"), 1L), counts);
+    }
+
+    @Test
+    void countsLegacyStringCells() {
+        aggregator.add(Row.create(legacyKey(), List.of(
+                cell("browser", "Firefox"),
+                cell("country", "Mexico"),
+                cell("device_type", "Desktop"),
+                cell("timestamp", "2024-03-10T05:15:00Z"))));
+        // Written as CST wall-clock time: 2024-03-09T23:45 is 05:45 UTC
+        aggregator.add(Row.create(legacyKey(), List.of(
+                cell("browser", "Firefox"),
+                cell("timestamp", "2024-03-09T23:45:00"))));
+        // Outside the window
+        aggregator.add(Row.create(legacyKey(), List.of(
+                cell("browser", "Firefox"),
+                cell("timestamp", "2024-03-11T00:00:00Z"))));
+        aggregator.add(Row.create(legacyKey(), List.of(cell("browser", "Firefox"))));
+
+        assertEquals(Map.of(
+                counter(5, "TOTAL", null), 2L,
+                counter(5, "BROWSER", "Firefox"), 2L,
+                counter(5, "COUNTRY", "Mexico"), 1L,
+                counter(5, "DEVICE", "Desktop"), 1L), hourly());
+    }
+
+    @Test
+    void countsLegacyRowsWithARecordCell() {
+        long millis = DAY_START + 7 * HOUR + 1;
+        aggregator.add(recordRow(legacyKey(), click(millis, "Tablet", "Edge", "India")));
+        aggregator.add(recordRow(legacyKey(), click(millis - 2 * DAY, "Tablet", "Edge", "India")));
+
+        assertEquals(Map.of(
+                counter(7, "TOTAL", null), 1L,
+                counter(7, "DEVICE", "Tablet"), 1L,
+                counter(7, "BROWSER", "Edge"), 1L,
+                counter(7, "COUNTRY", "India"), 1L), hourly());
+    }
+
+    @Test
+    void daysSumTheirHoursAndResetStartsOver() {
+        for (int hour = 0; hour < 24; hour++) {
+            long millis = DAY_START + hour * HOUR;
+            aggregator.add(recordRow(newKey(millis), click(millis, "Desktop", "Chrome", "Unknown")));
+        }
+
+        Map<String, Long> daily = new TreeMap<>();
+        aggregator.forEach(DAY, (bucketStart, dimension, value, count) ->
+                daily.put(bucketStart + "/" + dimension + "/" + value, count));
+        assertEquals(Map.of(
+                DAY_START + "/TOTAL/null", 24L,
+                DAY_START + "/DEVICE/Desktop", 24L,
+                DAY_START + "/BROWSER/Chrome", 24L,
+                DAY_START + "/COUNTRY/Unknown", 24L), daily);
+
+        aggregator.reset("xyz789", DAY_START, DAY_START + DAY);
+        assertEquals(0, aggregator.size());
+        aggregator.add(recordRow(ByteString.copyFromUtf8("xyz789#" + (DAY_START + 1) + "#t-1"),
+                click(DAY_START + 1, "Desktop", "Chrome", "Unknown")));
+        assertEquals(4, aggregator.size());
+    }
+
+    @Test
+    void tablesGrowPastTheirInitialSize() {
+        aggregator.reset("abc123", DAY_START, DAY_START + 1000 * HOUR);
+        for (int hour = 0; hour < 1000; hour++) {
+            long millis = DAY_START + hour * HOUR;
+            aggregator.add(Row.create(newKey(millis), List.of(cell("country", "Country " + (hour % 300)))));
+        }
+
+        // A total and one country per hour
+        assertEquals(2000, aggregator.size());
+        // Buckets are aligned to the epoch, so this may be two buckets
+        long[] countries = {0};
+        Set<String> distinct = new HashSet<>();
+        aggregator.forEach(1000 * HOUR, (bucketStart, dimension, value, count) -> {
+            if (dimension == ClickStreamAggregator.Dimension.COUNTRY) {
+                countries[0] += count;
+                distinct.add(value);
+            }
+        });
+        assertEquals(1000, countries[0]);
+        assertEquals(300, distinct.size());
+    }
+
+    private Map<String, Long> hourly() {
+        Map<String, Long> counts = new TreeMap<>();
+        aggregator.forEach(HOUR, (bucketStart, dimension, value, count) ->
+                counts.put(counter((bucketStart - DAY_START) / HOUR, dimension.name(), value), count));
+        return counts;
+    }
+
+    private static String counter(long hour, String dimension, String value) {
+        return hour + "/" + dimension + "/" + value;
+    }
+
+    private static long parse(String value) {
+        return ClickStreamAggregator.parseTimestamp(ByteString.copyFromUtf8(value));
+    }
+
+    private static ByteString newKey(long millis) {
+        return ByteString.copyFromUtf8(ClickEventKeys.newKey("abc123", millis));
+    }
+
+    // Legacy keys are only told apart from the new layout, never parsed
+    private static ByteString legacyKey() {
+        return ByteString.copyFromUtf8("abc123_2024-03-10T00:00-06:00[America/Chicago]_3f2b");
+    }
+
+    private static Row recordRow(ByteString key, ClickEvent event) {
+        return Row.create(key, List.of(RowCell.create("click_events", ByteString.copyFromUtf8("record"), 0L, List.of(),
+                ClickRecordCodec.encode(event, 0, 0))));
+    }
+
+    private static ClickEvent click(long millis, String deviceType, String browser, String country) {
+        return new ClickEvent("abc123", millis, "203.0.113.7", null, null)
+                .withEnrichment(country, deviceType, browser, "Windows");
+    }
+
+    private static RowCell cell(String qualifier, String value) {
+        return RowCell.create("click_events", ByteString.copyFromUtf8(qualifier), 0L, List.of(),
+                ByteString.copyFromUtf8(value));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.urlshortenerbackend.service;
+
+import com.example.urlshortenerbackend.model.ClickEvent;
+import com.example.urlshortenerbackend.model.RedirectResult;
+import com.example.urlshortenerbackend.repository.BigtableRepository;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.bigtable.data.v2.BigtableDataClient;
+import com.google.cloud.bigtable.data.v2.models.Filters;
+import com.google.cloud.bigtable.data.v2.models.Row;
+import com.google.cloud.bigtable.data.v2.models.RowCell;
+import com.google.cloud.bigtable.data.v2.models.RowMutation;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UrlServiceRedirectTest {
+
+    private static final String TABLE_NAME = "team2_url_shortener";
+
+    private BigtableDataClient bigtableClient;
+    private ClickEventPipeline clickEventPipeline;
+    private ClickCounterService clickCounterService;
+    private ShortIdFilter shortIdFilter;
+    private UrlService urlService;
+
+    @BeforeEach
+    void setUp() {
+        bigtableClient = mock(BigtableDataClient.class);
+        BigtableRepository repository = new BigtableRepository(bigtableClient, new SimpleMeterRegistry());
+        ShortLinkCache cache = new ShortLinkCache(100, 300, new SimpleMeterRegistry());
+        clickEventPipeline = mock(ClickEventPipeline.class);
+        clickCounterService = mock(ClickCounterService.class);
+        shortIdFilter = mock(ShortIdFilter.class);
+        when(shortIdFilter.mightExistAsync(anyString())).thenReturn(CompletableFuture.completedFuture(true));
+
+        urlService = new UrlService(repository, cache, clickEventPipeline, clickCounterService, shortIdFilter,
+                mock(ShortIdAllocator.class), mock(BulkShortenService.class), mock(LinkDeletionService.class),
+                mock(TrendingService.class));
+    }
+
+    @Test
+    void redirectReadsTheLinkRowOnceWithoutBlocking() {
+        when(bigtableClient.readRowAsync(anyString(), anyString(), any(Filters.Filter.class))).thenReturn(ApiFutures.immediateFuture(linkRow("abc123", false)));
+
+        RedirectResult result = urlService.resolveRedirect("abc123", false, null, browserRequest()).join();
+
+        assertEquals(RedirectResult.Status.FOUND, result.getStatus());
+        assertEquals("https://example.com/page", result.getLocation());
+        verify(bigtableClient, times(1)).readRowAsync(eq(TABLE_NAME), eq("abc123"), any(Filters.Filter.class));
+        verify(bigtableClient, never()).readRow(anyString(), anyString(), any(Filters.Filter.class));
+        verify(clickEventPipeline, times(1)).submit(any(ClickEvent.class));
+        verify(clickCounterService, times(1)).recordClick("abc123");
+        verify(bigtableClient, never()).mutateRow(any(RowMutation.class));
+    }
+
+    @Test
+    void cachedRedirectDoesNotReadAgain() {
+        when(bigtableClient.readRowAsync(anyString(), anyString(), any(Filters.Filter.class))).thenReturn(ApiFutures.immediateFuture(linkRow("abc123", false)));
+
+        urlService.resolveRedirect("abc123", false, null, browserRequest()).join();
+        urlService.resolveRedirect("abc123", false, null, browserRequest()).join();
+
+        verify(bigtableClient, times(1)).readRowAsync(eq(TABLE_NAME), eq("abc123"), any(Filters.Filter.class));
+        verify(clickCounterService, times(2)).recordClick("abc123");
+    }
+
+    @Test
+    void privateLinkIsRefusedWithoutBookkeeping() {
+        when(bigtableClient.readRowAsync(anyString(), anyString(), any(Filters.Filter.class))).thenReturn(ApiFutures.immediateFuture(linkRow("secret", true)));
+
+        RedirectResult anonymous = urlService.resolveRedirect("secret", false, null, browserRequest()).join();
+        RedirectResult stranger = urlService.resolveRedirect("secret", true, "github#other", browserRequest()).join();
+
+        assertEquals(RedirectResult.Status.UNAUTHORIZED, anonymous.getStatus());
+        assertEquals(RedirectResult.Status.FORBIDDEN, stranger.getStatus());
+        verify(bigtableClient, times(1)).readRowAsync(eq(TABLE_NAME), eq("secret"), any(Filters.Filter.class));
+        verify(bigtableClient, never()).mutateRow(any(RowMutation.class));
+        verify(clickEventPipeline, never()).submit(any(ClickEvent.class));
+        verify(clickCounterService, never()).recordClick(anyString());
+    }
+
+    @Test
+    void unknownIdIsNotFound() {
+        when(bigtableClient.readRowAsync(anyString(), anyString(), any(Filters.Filter.class))).thenReturn(ApiFutures.immediateFuture(null));
+
+        RedirectResult result = urlService.resolveRedirect("missing", false, null, browserRequest()).join();
+
+        assertEquals(RedirectResult.Status.NOT_FOUND, result.getStatus());
+        verify(bigtableClient, times(1)).readRowAsync(eq(TABLE_NAME), eq("missing"), any(Filters.Filter.class));
+    }
+
+    @Test
+    void linkBeingDeletedIsNotFound() {
+        Row deleting = Row.create(ByteString.copyFromUtf8("abc123"), List.of(
+                cell("metadata", "deleted_at", "2025-03-01T12:00:00Z"),
+                cell("short_urls", "original_url", "https://example.com/page")
+        ));
+        when(bigtableClient.readRowAsync(anyString(), anyString(), any(Filters.Filter.class))).thenReturn(ApiFutures.immediateFuture(deleting));
+
+        RedirectResult result = urlService.resolveRedirect("abc123", false, null, browserRequest()).join();
+
+        assertEquals(RedirectResult.Status.NOT_FOUND, result.getStatus());
+        verify(clickCounterService, never()).recordClick(anyString());
+    }
+
+    @Test
+    void idRejectedByFilterIsNotFoundWithoutRead() {
+        when(shortIdFilter.mightExistAsync("typo")).thenReturn(CompletableFuture.completedFuture(false));
+
+        RedirectResult result = urlService.resolveRedirect("typo", false, null, browserRequest()).join();
+
+        assertEquals(RedirectResult.Status.NOT_FOUND, result.getStatus());
+        verify(bigtableClient, never()).readRowAsync(anyString(), anyString(), any(Filters.Filter.class));
+        verify(clickCounterService, never()).recordClick(anyString());
+    }
+
+    private static MockHttpServletRequest browserRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/abc123");
+        request.addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) Chrome/124.0 Safari/537.36");
+        request.setRemoteAddr("203.0.113.7");
+        return request;
+    }
+
+    // Cells must be ordered by family, then qualifier, as Bigtable returns them
+    private static Row linkRow(String id, boolean isPrivate) {
+        return Row.create(ByteString.copyFromUtf8(id), List.of(
+                cell("metadata", "click_count", "41"),
+                cell("metadata", "is_private", String.valueOf(isPrivate)),
+                cell("metadata", "last_access", "2025-03-01T12:00:00Z"),
+                cell("short_urls", "original_url", "https://example.com/page"),
+                cell("short_urls", "owner_id", "github#owner"),
+                cell("short_urls", "tag", "None")
+        ));
+    }
+
+    private static RowCell cell(String family, String qualifier, String value) {
+        return RowCell.create(family, ByteString.copyFromUtf8(qualifier), 0L, List.of(),
+                ByteString.copyFromUtf8(value));
+    }
+}